@@ -0,0 +1,74 @@
+package aed.benchmarks;
+
+import java.util.Random;
+
+import aed.InfoMateria;
+import aed.ParCarreraMateria;
+
+/**
+ * Datos de entrada sintéticos para los benchmarks: LUs, carreras y MATERIAS
+ * materias, cada una con `alias` nombres en carreras distintas. Los nombres
+ * tienen exactamente `largoNombre` caracteres y comparten prefijos largos,
+ * como los nombres reales ("Algoritmos y Estructuras de Datos I", "... II").
+ * Con la misma configuración siempre genera los mismos datos.
+ */
+final class Catalogo {
+
+    static final int MATERIAS = 2000;
+
+    private static final String[] PALABRAS = {
+            "Algoritmos", "Estructuras", "de", "Datos", "Análisis", "Matemático", "Introducción", "a", "la",
+            "Programación", "Sistemas", "Operativos", "Teoría", "Lenguajes", "Probabilidad", "y", "Estadística",
+            "Ingeniería", "Software", "Base", "Computación", "Paralela", "Álgebra", "Lineal" };
+
+    final String[] libretas;
+    final String[] carreras;
+    final InfoMateria[] materias;
+    // nombre de cada materia en la carrera de su primer alias
+    final String[] carreraDeMateria;
+    final String[] nombreDeMateria;
+
+    Catalogo(int estudiantes, int cantCarreras, int alias, int largoNombre) {
+        if (alias > cantCarreras) {
+            throw new IllegalArgumentException("alias no puede superar a carreras");
+        }
+        Random azar = new Random(42);
+        libretas = new String[estudiantes];
+        for (int i = 0; i < estudiantes; i++) {
+            libretas[i] = i + "/" + (10 + i % 15);
+        }
+        carreras = new String[cantCarreras];
+        for (int i = 0; i < cantCarreras; i++) {
+            carreras[i] = "Licenciatura en " + nombre(azar, 20, i);
+        }
+        materias = new InfoMateria[MATERIAS];
+        carreraDeMateria = new String[MATERIAS];
+        nombreDeMateria = new String[MATERIAS];
+        for (int m = 0; m < MATERIAS; m++) {
+            ParCarreraMateria[] pares = new ParCarreraMateria[alias];
+            int primera = azar.nextInt(cantCarreras);
+            for (int j = 0; j < alias; j++) {
+                String carrera = carreras[(primera + j) % cantCarreras];
+                pares[j] = new ParCarreraMateria(carrera, nombre(azar, largoNombre, m * alias + j));
+            }
+            materias[m] = new InfoMateria(pares);
+            carreraDeMateria[m] = pares[0].getCarrera();
+            nombreDeMateria[m] = pares[0].getNombreMateria();
+        }
+    }
+
+    /**
+     * Devuelve un nombre de exactamente `largo` caracteres (o el largo de id
+     * si es mayor) formado por palabras al azar y terminado en id, que lo
+     * hace único.
+     */
+    private static String nombre(Random azar, int largo, int id) {
+        String sufijo = " " + id;
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < largo - sufijo.length()) {
+            sb.append(PALABRAS[azar.nextInt(PALABRAS.length)]).append(' ');
+        }
+        sb.setLength(Math.max(0, largo - sufijo.length()));
+        return sb.append(sufijo).toString();
+    }
+}
@@ -0,0 +1,36 @@
+package aed.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aed.SistemaSIU;
+
+/**
+ * Construcción del sistema a partir del catálogo, secuencial y repartida en
+ * el pool común.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConstruccionBenchmark {
+
+    @Benchmark
+    public SistemaSIU construir(Escenario e) {
+        return new SistemaSIU(e.catalogo.materias, e.catalogo.libretas, e.fabrica);
+    }
+
+    @Benchmark
+    public SistemaSIU construirEnParalelo(Escenario e) {
+        return new SistemaSIU(e.catalogo.materias, e.catalogo.libretas, ForkJoinPool.commonPool(), e.fabrica);
+    }
+}
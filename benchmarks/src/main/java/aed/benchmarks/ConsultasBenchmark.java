@@ -0,0 +1,98 @@
+package aed.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aed.SistemaSIU;
+
+/**
+ * Operaciones que se pueden repetir indefinidamente sobre el mismo sistema:
+ * las consultas y agregarDocente (que sólo suma al plantel). Cada invocación
+ * usa la siguiente materia o el siguiente estudiante, para no medir siempre
+ * el mismo camino en caché.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsultasBenchmark {
+
+    // materias en las que se inscribe cada estudiante al armar el sistema
+    private static final int MATERIAS_POR_ESTUDIANTE = 3;
+
+    @State(Scope.Thread)
+    public static class Sistema {
+        Catalogo catalogo;
+        SistemaSIU siu;
+        int materia = 0;
+        int estudiante = 0;
+
+        @Setup(Level.Trial)
+        public void armar(Escenario e) {
+            catalogo = e.catalogo;
+            siu = new SistemaSIU(catalogo.materias, catalogo.libretas, e.fabrica);
+            for (int i = 0; i < catalogo.libretas.length; i++) {
+                for (int j = 0; j < MATERIAS_POR_ESTUDIANTE; j++) {
+                    int m = (i * MATERIAS_POR_ESTUDIANTE + j) % Catalogo.MATERIAS;
+                    siu.inscribir(catalogo.libretas[i], catalogo.carreraDeMateria[m], catalogo.nombreDeMateria[m]);
+                }
+            }
+        }
+
+        int siguienteMateria() {
+            materia = materia + 1 == Catalogo.MATERIAS ? 0 : materia + 1;
+            return materia;
+        }
+
+        String siguienteEstudiante() {
+            estudiante = estudiante + 1 == catalogo.libretas.length ? 0 : estudiante + 1;
+            return catalogo.libretas[estudiante];
+        }
+    }
+
+    @Benchmark
+    public int inscriptos(Sistema s) {
+        int m = s.siguienteMateria();
+        return s.siu.inscriptos(s.catalogo.nombreDeMateria[m], s.catalogo.carreraDeMateria[m]);
+    }
+
+    @Benchmark
+    public boolean excedeCupo(Sistema s) {
+        int m = s.siguienteMateria();
+        return s.siu.excedeCupo(s.catalogo.nombreDeMateria[m], s.catalogo.carreraDeMateria[m]);
+    }
+
+    @Benchmark
+    public void agregarDocente(Sistema s) {
+        int m = s.siguienteMateria();
+        s.siu.agregarDocente(SistemaSIU.CargoDocente.AY2, s.catalogo.carreraDeMateria[m],
+                s.catalogo.nombreDeMateria[m]);
+    }
+
+    @Benchmark
+    public int materiasInscriptas(Sistema s) {
+        return s.siu.materiasInscriptas(s.siguienteEstudiante());
+    }
+
+    @Benchmark
+    public String[] carreras(Sistema s) {
+        return s.siu.carreras();
+    }
+
+    @Benchmark
+    public String[] materias(Sistema s) {
+        return s.siu.materias(s.catalogo.carreraDeMateria[s.siguienteMateria()]);
+    }
+}
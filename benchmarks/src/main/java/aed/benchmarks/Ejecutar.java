@@ -0,0 +1,27 @@
+package aed.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de benchmarks.jar. Acepta las mismas opciones que la
+ * línea de comandos de JMH (por ejemplo `-p estudiantes=1000` o un patrón de
+ * benchmarks) y siempre agrega el profiler de GC, que reporta la tasa de
+ * asignación (gc.alloc.rate.norm: bytes por operación) junto a cada tiempo.
+ */
+public final class Ejecutar {
+
+    private Ejecutar() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opciones = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opciones).run();
+    }
+}
@@ -0,0 +1,44 @@
+package aed.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import aed.FabricaDiccionarios;
+
+/**
+ * Parámetros comunes a todos los benchmarks: cantidad de estudiantes, de
+ * carreras, de alias por materia, largo de los nombres de materia e
+ * implementación de los índices de SistemaSIU (la misma para estudiantes,
+ * carreras y materias). Genera el Catalogo y la FabricaDiccionarios una vez
+ * por corrida.
+ */
+@State(Scope.Benchmark)
+public class Escenario {
+
+    @Param({ "1000", "100000" })
+    public int estudiantes;
+
+    @Param({ "10", "100" })
+    public int carreras;
+
+    @Param({ "1", "4" })
+    public int alias;
+
+    @Param({ "12", "60" })
+    public int largoNombre;
+
+    @Param({ "TRIE", "TRIE_COMPRIMIDO", "HASH" })
+    public FabricaDiccionarios.Implementacion implementacion;
+
+    Catalogo catalogo;
+    FabricaDiccionarios fabrica;
+
+    @Setup(Level.Trial)
+    public void generar() {
+        catalogo = new Catalogo(estudiantes, carreras, alias, largoNombre);
+        fabrica = new FabricaDiccionarios(implementacion, implementacion, implementacion);
+    }
+}
@@ -0,0 +1,96 @@
+package aed.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aed.SistemaSIU;
+
+/**
+ * Volver a levantar el servicio: recargar una instantánea contra
+ * reconstruirlo (constructor más todas las inscripciones), con el mismo
+ * estado final. Cada estudiante está inscripto en MATERIAS_POR_ESTUDIANTE
+ * materias. También mide guardar la instantánea, que incluye forzarla a
+ * disco.
+ *
+ * No usa Escenario: la comparación interesa con muchos estudiantes, y el
+ * resto de los parámetros quedan fijos.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InstantaneaBenchmark {
+
+    static final int MATERIAS_POR_ESTUDIANTE = 4;
+
+    @State(Scope.Benchmark)
+    public static class Estado {
+
+        @Param({ "500000" })
+        public int estudiantes;
+
+        Catalogo catalogo;
+        SistemaSIU siu;
+        Path archivo;
+
+        @Setup(Level.Trial)
+        public void armar() throws IOException {
+            catalogo = new Catalogo(estudiantes, 10, 2, 40);
+            archivo = Files.createTempFile("siu", ".instantanea");
+            siu = reconstruir(catalogo);
+            siu.guardarInstantanea(archivo);
+        }
+
+        @TearDown(Level.Trial)
+        public void borrar() throws IOException {
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    /**
+     * El estudiante e se inscribe en las materias e + j * MATERIAS /
+     * MATERIAS_POR_ESTUDIANTE (mod MATERIAS), que son distintas entre sí.
+     */
+    static SistemaSIU reconstruir(Catalogo catalogo) {
+        SistemaSIU siu = new SistemaSIU(catalogo.materias, catalogo.libretas);
+        for (int e = 0; e < catalogo.libretas.length; e++) {
+            for (int j = 0; j < MATERIAS_POR_ESTUDIANTE; j++) {
+                int m = (e + j * Catalogo.MATERIAS / MATERIAS_POR_ESTUDIANTE) % Catalogo.MATERIAS;
+                siu.inscribir(catalogo.libretas[e], catalogo.carreraDeMateria[m], catalogo.nombreDeMateria[m]);
+            }
+        }
+        return siu;
+    }
+
+    @Benchmark
+    public SistemaSIU reconstruir(Estado s) {
+        return reconstruir(s.catalogo);
+    }
+
+    @Benchmark
+    public SistemaSIU recargar(Estado s) throws IOException {
+        return SistemaSIU.cargarInstantanea(s.archivo);
+    }
+
+    @Benchmark
+    public void guardar(Estado s) throws IOException {
+        s.siu.guardarInstantanea(s.archivo);
+    }
+}
@@ -0,0 +1,80 @@
+package aed.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aed.SistemaSIU;
+
+/**
+ * Costo de las métricas (MetricasSIU) en las operaciones más baratas, donde
+ * pesa más: las mismas consultas con las métricas activas y desactivadas.
+ * Con el profiler de GC, gc.alloc.rate.norm debe ser igual en los dos casos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricasBenchmark {
+
+    private static final int ESTUDIANTES = 100000;
+
+    @State(Scope.Benchmark)
+    public static class Sistema {
+        @Param({ "false", "true" })
+        public boolean activas;
+
+        Catalogo catalogo;
+        SistemaSIU siu;
+
+        @Setup(Level.Trial)
+        public void armar() {
+            catalogo = new Catalogo(ESTUDIANTES, 10, 1, 12);
+            siu = new SistemaSIU(catalogo.materias, catalogo.libretas);
+            for (int i = 0; i < ESTUDIANTES; i++) {
+                int m = i % Catalogo.MATERIAS;
+                siu.inscribir(catalogo.libretas[i], catalogo.carreraDeMateria[m], catalogo.nombreDeMateria[m]);
+            }
+            siu.metricas().setActivas(activas);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Posicion {
+        int i = 0;
+
+        int siguiente(int n) {
+            i = i + 1 == n ? 0 : i + 1;
+            return i;
+        }
+    }
+
+    @Benchmark
+    public int materiasInscriptas(Sistema s, Posicion p) {
+        return s.siu.materiasInscriptas(s.catalogo.libretas[p.siguiente(ESTUDIANTES)]);
+    }
+
+    @Benchmark
+    public int inscriptos(Sistema s, Posicion p) {
+        int m = p.siguiente(Catalogo.MATERIAS);
+        return s.siu.inscriptos(s.catalogo.nombreDeMateria[m], s.catalogo.carreraDeMateria[m]);
+    }
+
+    @Benchmark
+    public boolean excedeCupo(Sistema s, Posicion p) {
+        int m = p.siguiente(Catalogo.MATERIAS);
+        return s.siu.excedeCupo(s.catalogo.nombreDeMateria[m], s.catalogo.carreraDeMateria[m]);
+    }
+}
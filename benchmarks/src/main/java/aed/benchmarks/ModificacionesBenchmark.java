@@ -0,0 +1,206 @@
+package aed.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aed.InfoMateria;
+import aed.Inscripcion;
+import aed.ParCarreraMateria;
+import aed.SistemaSIU;
+
+/**
+ * Operaciones que no se pueden repetir sobre los mismos datos: inscribir (un
+ * estudiante se inscribe una sola vez en cada materia) y cerrarMateria. Cada
+ * iteración arma un sistema nuevo fuera de la medición y mide un lote fijo de
+ * operaciones distintas; el resultado es el tiempo del lote. `inscribir` e
+ * `inscribirLote` hacen las mismas LOTE_INSCRIBIR inscripciones por
+ * iteración, una por llamada o de a TAMAÑO_LOTE por llamada, así que sus
+ * tiempos se comparan directamente. `cerrarMateriaConInscripciones` hace los
+ * mismos cierres que `cerrarMateria` mientras HILOS_INSCRIBIR hilos inscriben
+ * sin parar en todas las materias, para ver cuánto tarda un cierre cuando
+ * compite por el catálogo y por las materias. `cerrarMateriaConMuchosAlias`
+ * cierra materias de MUCHOS_ALIAS alias cada una, con nombres largos que
+ * comparten casi todo el prefijo, el peor caso de borrar de los tries.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class ModificacionesBenchmark {
+
+    static final int LOTE_INSCRIBIR = 10000;
+    static final int LOTE_CERRAR = 200;
+    static final int TAMAÑO_LOTE = 100;
+    // inscripciones seguidas en la misma materia
+    static final int POR_MATERIA = 10;
+    static final int HILOS_INSCRIBIR = 3;
+    static final int MUCHOS_ALIAS = 64;
+    private static final String PREFIJO = "Seminario de Algoritmos y Estructuras de Datos Avanzadas ";
+
+    @State(Scope.Thread)
+    public static class Sistema {
+        Catalogo catalogo;
+        SistemaSIU siu;
+        int siguiente;
+        Inscripcion[][] lotes;
+
+        @Setup(Level.Iteration)
+        public void armar(Escenario e) {
+            catalogo = e.catalogo;
+            siu = new SistemaSIU(catalogo.materias, catalogo.libretas, e.fabrica);
+            siguiente = 0;
+            lotes = lotes();
+        }
+
+        /**
+         * Las LOTE_INSCRIBIR inscripciones de `inscribir`, partidas en lotes
+         * de TAMAÑO_LOTE.
+         */
+        Inscripcion[][] lotes() {
+            Inscripcion[][] res = new Inscripcion[LOTE_INSCRIBIR / TAMAÑO_LOTE][TAMAÑO_LOTE];
+            for (int i = 0; i < LOTE_INSCRIBIR; i++) {
+                int e = i % catalogo.libretas.length;
+                int m = i / POR_MATERIA;
+                res[i / TAMAÑO_LOTE][i % TAMAÑO_LOTE] = new Inscripcion(catalogo.libretas[e],
+                        catalogo.carreraDeMateria[m], catalogo.nombreDeMateria[m]);
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Un sistema nuevo por iteración con HILOS_INSCRIBIR hilos que inscriben
+     * desde que se arma hasta que termina la iteración. El hilo t inscribe a
+     * los estudiantes e ≡ t (mod HILOS_INSCRIBIR), recorriendo todas las
+     * materias para cada estudiante, así que nunca repite una inscripción; si
+     * la materia ya se cerró, sigue con la próxima.
+     */
+    @State(Scope.Thread)
+    public static class SistemaConInscripciones {
+        Catalogo catalogo;
+        SistemaSIU siu;
+        int siguiente;
+        Thread[] hilos;
+        volatile boolean terminar;
+
+        @Setup(Level.Iteration)
+        public void armar(Escenario e) {
+            catalogo = e.catalogo;
+            siu = new SistemaSIU(catalogo.materias, catalogo.libretas, e.fabrica);
+            siguiente = 0;
+            terminar = false;
+            hilos = new Thread[HILOS_INSCRIBIR];
+            for (int t = 0; t < HILOS_INSCRIBIR; t++) {
+                int hilo = t;
+                hilos[t] = new Thread(() -> inscribir(hilo), "inscribir-" + t);
+                hilos[t].start();
+            }
+        }
+
+        private void inscribir(int hilo) {
+            int porHilo = catalogo.libretas.length / HILOS_INSCRIBIR;
+            long total = (long) porHilo * Catalogo.MATERIAS;
+            for (long k = 0; k < total && !terminar; k++) {
+                int m = (int) (k % Catalogo.MATERIAS);
+                int e = hilo + HILOS_INSCRIBIR * (int) (k / Catalogo.MATERIAS);
+                try {
+                    siu.inscribir(catalogo.libretas[e], catalogo.carreraDeMateria[m], catalogo.nombreDeMateria[m]);
+                } catch (IllegalStateException | NullPointerException ex) {
+                    // la materia ya se cerró (y quizás ya no está en los tries)
+                }
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void detener() throws InterruptedException {
+            terminar = true;
+            for (Thread hilo : hilos) {
+                hilo.join();
+            }
+        }
+    }
+
+    /**
+     * LOTE_CERRAR materias con un alias en cada una de MUCHOS_ALIAS carreras.
+     * En cada carrera los nombres son PREFIJO seguido del número de materia y
+     * de carrera, así que al borrar un nombre se recorre todo el prefijo
+     * compartido y la poda se detiene cerca de la hoja.
+     */
+    @State(Scope.Thread)
+    public static class SistemaConMuchosAlias {
+        InfoMateria[] materias;
+        SistemaSIU siu;
+        int siguiente;
+
+        @Setup(Level.Iteration)
+        public void armar() {
+            materias = new InfoMateria[LOTE_CERRAR];
+            for (int m = 0; m < LOTE_CERRAR; m++) {
+                ParCarreraMateria[] pares = new ParCarreraMateria[MUCHOS_ALIAS];
+                for (int j = 0; j < MUCHOS_ALIAS; j++) {
+                    pares[j] = new ParCarreraMateria("Carrera " + j, PREFIJO + m + "." + j);
+                }
+                materias[m] = new InfoMateria(pares);
+            }
+            siu = new SistemaSIU(materias, new String[] { "1/10" });
+            siguiente = 0;
+        }
+    }
+
+    /**
+     * La i-ésima inscripción del lote es del estudiante i mod E en la materia
+     * i / POR_MATERIA: cada materia recibe POR_MATERIA inscripciones seguidas,
+     * y como E >= 1000 un mismo estudiante no se repite en una materia.
+     */
+    @Benchmark
+    @Warmup(iterations = 5, batchSize = LOTE_INSCRIBIR)
+    @Measurement(iterations = 10, batchSize = LOTE_INSCRIBIR)
+    public void inscribir(Sistema s) {
+        int i = s.siguiente++;
+        int e = i % s.catalogo.libretas.length;
+        int m = i / POR_MATERIA;
+        s.siu.inscribir(s.catalogo.libretas[e], s.catalogo.carreraDeMateria[m], s.catalogo.nombreDeMateria[m]);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, batchSize = LOTE_INSCRIBIR / TAMAÑO_LOTE)
+    @Measurement(iterations = 10, batchSize = LOTE_INSCRIBIR / TAMAÑO_LOTE)
+    public void inscribirLote(Sistema s) {
+        s.siu.inscribirLote(s.lotes[s.siguiente++]);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, batchSize = LOTE_CERRAR)
+    @Measurement(iterations = 10, batchSize = LOTE_CERRAR)
+    public void cerrarMateria(Sistema s) {
+        int m = s.siguiente++;
+        s.siu.cerrarMateria(s.catalogo.nombreDeMateria[m], s.catalogo.carreraDeMateria[m]);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, batchSize = LOTE_CERRAR)
+    @Measurement(iterations = 10, batchSize = LOTE_CERRAR)
+    public void cerrarMateriaConInscripciones(SistemaConInscripciones s) {
+        int m = s.siguiente++;
+        s.siu.cerrarMateria(s.catalogo.nombreDeMateria[m], s.catalogo.carreraDeMateria[m]);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 5, batchSize = LOTE_CERRAR)
+    @Measurement(iterations = 10, batchSize = LOTE_CERRAR)
+    public void cerrarMateriaConMuchosAlias(SistemaConMuchosAlias s) {
+        ParCarreraMateria par = s.materias[s.siguiente++].getParesCarreraMateria()[0];
+        s.siu.cerrarMateria(par.getNombreMateria(), par.getCarrera());
+    }
+}
@@ -0,0 +1,86 @@
+package aed.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aed.RegistroOperaciones;
+import aed.SistemaSIU;
+
+/**
+ * agregarDocente con un RegistroOperaciones asociado, según la ventana de
+ * agrupamiento del registro (en microsegundos): cada operación vuelve recién
+ * cuando es durable, así que el rendimiento depende de cuántas operaciones
+ * comparten cada fsync. Corre con HILOS hilos para que haya operaciones
+ * concurrentes que agrupar. agregarDocente se puede repetir sobre los mismos
+ * datos, a diferencia de inscribir.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(RegistroBenchmark.HILOS)
+@Fork(1)
+public class RegistroBenchmark {
+
+    static final int HILOS = 8;
+
+    @State(Scope.Benchmark)
+    public static class Sistema {
+        @Param({ "0", "100", "1000" })
+        public long ventana;
+
+        Catalogo catalogo;
+        SistemaSIU siu;
+        RegistroOperaciones registro;
+        Path archivo;
+
+        @Setup(Level.Iteration)
+        public void armar() throws IOException {
+            catalogo = new Catalogo(1000, 10, 1, 12);
+            siu = new SistemaSIU(catalogo.materias, catalogo.libretas);
+            archivo = Files.createTempFile("siu", ".registro");
+            registro = new RegistroOperaciones(archivo, TimeUnit.MICROSECONDS.toNanos(ventana));
+            siu.registrarOperaciones(registro);
+        }
+
+        @TearDown(Level.Iteration)
+        public void cerrar() throws IOException {
+            registro.close();
+            Files.deleteIfExists(archivo);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Posicion {
+        int i = 0;
+
+        int siguiente(int n) {
+            i = i + 1 == n ? 0 : i + 1;
+            return i;
+        }
+    }
+
+    @Benchmark
+    public void agregarDocente(Sistema s, Posicion p) {
+        int m = p.siguiente(Catalogo.MATERIAS);
+        s.siu.agregarDocente(SistemaSIU.CargoDocente.AY2, s.catalogo.carreraDeMateria[m],
+                s.catalogo.nombreDeMateria[m]);
+    }
+}
@@ -0,0 +1,94 @@
+package aed.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aed.Trie;
+
+/**
+ * Trie original (TrieOriginal, 256 posiciones por nodo) contra el Trie con
+ * nodos adaptativos, sobre las LUs del catálogo. `construir` arma el trie con
+ * todas las LUs: con el profiler de GC, gc.alloc.rate.norm es lo que ocupa el
+ * trie en el heap (en el adaptativo, más los arreglos que se descartan al
+ * crecer, así que lo sobreestima). `obtener` mide la búsqueda de una LU.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class TrieBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Claves {
+        @Param({ "10000", "100000" })
+        public int estudiantes;
+
+        @Param({ "original", "adaptativo" })
+        public String implementacion;
+
+        String[] libretas;
+        TrieOriginal<Integer> original;
+        Trie<Integer> adaptativo;
+
+        @Setup(Level.Trial)
+        public void armar() {
+            libretas = new Catalogo(estudiantes, 1, 1, 12).libretas;
+            if (implementacion.equals("original")) {
+                original = construirOriginal(libretas);
+            } else {
+                adaptativo = construirAdaptativo(libretas);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Posicion {
+        int i = 0;
+
+        int siguiente(int n) {
+            i = i + 1 == n ? 0 : i + 1;
+            return i;
+        }
+    }
+
+    static TrieOriginal<Integer> construirOriginal(String[] claves) {
+        TrieOriginal<Integer> res = new TrieOriginal<>();
+        for (int i = 0; i < claves.length; i++) {
+            res.definir(claves[i], i);
+        }
+        return res;
+    }
+
+    static Trie<Integer> construirAdaptativo(String[] claves) {
+        Trie<Integer> res = new Trie<>();
+        for (int i = 0; i < claves.length; i++) {
+            res.definir(claves[i], i);
+        }
+        return res;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object construir(Claves c) {
+        return c.original != null ? construirOriginal(c.libretas) : construirAdaptativo(c.libretas);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Integer obtener(Claves c, Posicion p) {
+        String lu = c.libretas[p.siguiente(c.libretas.length)];
+        return c.original != null ? c.original.obtener(lu) : c.adaptativo.obtener(lu);
+    }
+}
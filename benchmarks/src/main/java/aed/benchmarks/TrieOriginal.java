@@ -0,0 +1,49 @@
+package aed.benchmarks;
+
+import java.util.ArrayList;
+
+/**
+ * El Trie de la versión original de la solución, reducido a definir y
+ * obtener: cada nodo reserva un ArrayList con 256 posiciones (una por
+ * caracter, null si no hay hijo). Sólo sirve como referencia en
+ * TrieBenchmark para comparar con los nodos adaptativos de aed.Trie.
+ *
+ * requiere {las claves sólo tienen caracteres menores a 256}
+ */
+final class TrieOriginal<V> {
+
+    private final Nodo root = new Nodo();
+
+    private final class Nodo {
+
+        V significado;
+        final ArrayList<Nodo> hijos;
+
+        Nodo() {
+            hijos = new ArrayList<>(256);
+            for (int i = 0; i < 256; i++) {
+                hijos.add(null);
+            }
+        }
+    }
+
+    void definir(String k, V value) {
+        Nodo actual = root;
+        for (int i = 0; i < k.length(); i++) {
+            int index = k.charAt(i);
+            if (actual.hijos.get(index) == null) {
+                actual.hijos.set(index, new Nodo());
+            }
+            actual = actual.hijos.get(index);
+        }
+        actual.significado = value;
+    }
+
+    V obtener(String k) {
+        Nodo actual = root;
+        for (int i = 0; i < k.length(); i++) {
+            actual = actual.hijos.get(k.charAt(i));
+        }
+        return actual.significado;
+    }
+}
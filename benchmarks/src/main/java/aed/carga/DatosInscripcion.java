@@ -0,0 +1,80 @@
+package aed.carga;
+
+import java.util.Random;
+
+import aed.InfoMateria;
+import aed.ParCarreraMateria;
+
+/**
+ * Conjunto de datos sintético con la forma de un cuatrimestre real: LUs con
+ * formato número/año, carreras, y materias ordenadas por popularidad (la
+ * materia i es la de rango i en la distribución de Zipf de la traza). Las
+ * primeras, las de primer año, son comunes a varias carreras y tienen un
+ * alias en cada una; el resto tiene uno o dos alias. Los mismos parámetros
+ * generan siempre los mismos datos.
+ */
+final class DatosInscripcion {
+
+    // fracción de materias (las más populares) compartidas entre carreras
+    private static final double COMUNES = 0.05;
+    private static final int MAX_ALIAS = 4;
+
+    private static final String[] CARRERAS = {
+            "Ciencias de la Computación", "Ciencias de Datos", "Matemática", "Física", "Química",
+            "Biología", "Ciencias de la Atmósfera", "Oceanografía", "Geología", "Paleontología" };
+
+    private static final String[] PALABRAS = {
+            "Algoritmos", "Estructuras de Datos", "Análisis", "Álgebra", "Lineal", "Probabilidad",
+            "Estadística", "Programación", "Sistemas", "Teoría", "Métodos Numéricos", "Física",
+            "Química", "Laboratorio", "Introducción a la", "Avanzado", "Computacional", "Aplicada" };
+
+    private static final String[] NIVELES = { "I", "II", "III", "IV" };
+
+    final int cantEstudiantes;
+    final int cantCarreras;
+    final int cantMaterias;
+    final long semilla;
+
+    final String[] libretas;
+    final String[] carreras;
+    final InfoMateria[] materias;
+    // carrera y nombre del primer alias de cada materia, para buscarla
+    final String[] carreraDeMateria;
+    final String[] nombreDeMateria;
+
+    DatosInscripcion(int cantEstudiantes, int cantCarreras, int cantMaterias, long semilla) {
+        this.cantEstudiantes = cantEstudiantes;
+        this.cantCarreras = cantCarreras;
+        this.cantMaterias = cantMaterias;
+        this.semilla = semilla;
+        Random azar = new Random(semilla);
+
+        libretas = new String[cantEstudiantes];
+        for (int i = 0; i < cantEstudiantes; i++) {
+            libretas[i] = (i % 1000 + 1) + "/" + (10 + i / 1000);
+        }
+        carreras = new String[cantCarreras];
+        for (int i = 0; i < cantCarreras; i++) {
+            carreras[i] = CARRERAS[i % CARRERAS.length] + (i < CARRERAS.length ? "" : " " + i);
+        }
+
+        materias = new InfoMateria[cantMaterias];
+        carreraDeMateria = new String[cantMaterias];
+        nombreDeMateria = new String[cantMaterias];
+        int comunes = (int) Math.ceil(cantMaterias * COMUNES);
+        for (int m = 0; m < cantMaterias; m++) {
+            int alias = m < comunes ? MAX_ALIAS : 1 + azar.nextInt(2);
+            alias = Math.min(alias, cantCarreras);
+            String nombre = PALABRAS[azar.nextInt(PALABRAS.length)] + " "
+                    + PALABRAS[azar.nextInt(PALABRAS.length)] + " " + NIVELES[m % NIVELES.length] + " (" + m + ")";
+            int primera = azar.nextInt(cantCarreras);
+            ParCarreraMateria[] pares = new ParCarreraMateria[alias];
+            for (int j = 0; j < alias; j++) {
+                pares[j] = new ParCarreraMateria(carreras[(primera + j) % cantCarreras], nombre);
+            }
+            materias[m] = new InfoMateria(pares);
+            carreraDeMateria[m] = pares[0].getCarrera();
+            nombreDeMateria[m] = nombre;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package aed.carga;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import aed.SistemaSIU;
+import aed.SistemaSIU.CargoDocente;
+
+/**
+ * Reproduce una traza contra un SistemaSIU a una tasa fija y reporta la
+ * latencia por tipo de operación (p50, p99, p999 y máximo), para dimensionar
+ * cuántas operaciones por segundo aguanta un período de inscripción.
+ *
+ * La carga es de lazo abierto: la operación i está programada para
+ * inicio + i / tasa y su latencia se mide desde ese instante, no desde que un
+ * hilo la toma. Si el sistema no da abasto las operaciones se atrasan y el
+ * atraso aparece en los percentiles, en lugar de bajar la tasa sin que se
+ * note (omisión coordinada).
+ *
+ * Uso:
+ *
+ * java -cp benchmarks/target/benchmarks.jar aed.carga.Reproductor
+ *     [--estudiantes N] [--carreras N] [--materias N] [--operaciones N]
+ *     [--zipf S] [--semilla N] [--tasa OPS_POR_SEGUNDO] [--hilos N]
+ *     [--calentamiento N] [--guardar TRAZA] [--traza TRAZA]
+ *
+ * Con --traza se reproduce una traza guardada antes con --guardar, en lugar
+ * de generar una nueva. Con --tasa 0 las operaciones se ejecutan lo más rápido
+ * posible. --calentamiento reproduce antes esa cantidad de operaciones de la
+ * traza, sin medir, sobre otro SistemaSIU, para que el JIT no ensucie los
+ * percentiles altos.
+ */
+public final class Reproductor {
+
+    private static final CargoDocente[] CARGOS = CargoDocente.values();
+
+    // a partir de este atraso se duerme en lugar de esperar activamente
+    private static final long ESPERA_ACTIVA_NS = 50_000;
+
+    private Reproductor() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        HashMap<String, String> opciones = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Opción inválida: " + args[i]);
+            }
+            opciones.put(args[i].substring(2), args[i + 1]);
+        }
+        double tasa = Double.parseDouble(opciones.getOrDefault("tasa", "20000"));
+        int hilos = Integer.parseInt(opciones.getOrDefault("hilos", "4"));
+        int calentamiento = Integer.parseInt(opciones.getOrDefault("calentamiento", "200000"));
+
+        Traza traza;
+        long t0 = System.nanoTime();
+        if (opciones.containsKey("traza")) {
+            traza = Traza.cargar(Path.of(opciones.get("traza")));
+        } else {
+            DatosInscripcion datos = new DatosInscripcion(
+                    Integer.parseInt(opciones.getOrDefault("estudiantes", "100000")),
+                    Integer.parseInt(opciones.getOrDefault("carreras", "10")),
+                    Integer.parseInt(opciones.getOrDefault("materias", "2000")),
+                    Long.parseLong(opciones.getOrDefault("semilla", "42")));
+            traza = Traza.generar(datos, Integer.parseInt(opciones.getOrDefault("operaciones", "1000000")),
+                    Double.parseDouble(opciones.getOrDefault("zipf", "1.0")), Traza.MEZCLA_POR_DEFECTO,
+                    datos.semilla + 1);
+        }
+        if (opciones.containsKey("guardar")) {
+            traza.guardar(Path.of(opciones.get("guardar")));
+        }
+        DatosInscripcion datos = traza.datos;
+        System.out.printf("datos: %d estudiantes, %d carreras, %d materias; traza: %d operaciones, zipf %.2f (%.1f s)%n",
+                datos.cantEstudiantes, datos.cantCarreras, datos.cantMaterias, traza.size(), traza.exponente,
+                (System.nanoTime() - t0) / 1e9);
+
+        if (calentamiento > 0) {
+            reproducir(new SistemaSIU(datos.materias, datos.libretas), traza,
+                    Math.min(calentamiento, traza.size()), 0, hilos);
+        }
+        SistemaSIU siu = new SistemaSIU(datos.materias, datos.libretas);
+        System.gc();
+        long inicio = System.nanoTime();
+        Resultado r = reproducir(siu, traza, traza.size(), tasa, hilos);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("tasa objetivo: %s, lograda: %.0f ops/s, %d hilos, %.1f s%n",
+                tasa > 0 ? String.format("%.0f ops/s", tasa) : "sin límite", traza.size() / segundos, hilos,
+                segundos);
+        r.reportar(traza);
+    }
+
+    /**
+     * Latencias y fallas de una reproducción, por operación de la traza.
+     */
+    static final class Resultado {
+        final long[] latencias;
+        final boolean[] fallidas;
+
+        Resultado(int operaciones) {
+            latencias = new long[operaciones];
+            fallidas = new boolean[operaciones];
+        }
+
+        /**
+         * Imprime, por tipo de operación, cantidad, fallas y percentiles de
+         * latencia en microsegundos.
+         *
+         * @Complejidad: O(n log n), con n la cantidad de operaciones.
+         */
+        void reportar(Traza traza) {
+            System.out.printf("%-20s %10s %8s %10s %10s %10s %10s%n", "operación", "cantidad", "fallas",
+                    "p50 µs", "p99 µs", "p999 µs", "máx µs");
+            for (int tipo = 0; tipo < Traza.NOMBRES.length; tipo++) {
+                int n = 0;
+                int fallas = 0;
+                long[] muestras = new long[latencias.length];
+                for (int i = 0; i < latencias.length; i++) {
+                    if (traza.tipos[i] == tipo) {
+                        muestras[n++] = latencias[i];
+                        if (fallidas[i]) {
+                            fallas++;
+                        }
+                    }
+                }
+                if (n == 0) {
+                    continue;
+                }
+                Arrays.sort(muestras, 0, n);
+                System.out.printf("%-20s %10d %8d %10.1f %10.1f %10.1f %10.1f%n", Traza.NOMBRES[tipo], n, fallas,
+                        percentil(muestras, n, 0.50), percentil(muestras, n, 0.99),
+                        percentil(muestras, n, 0.999), muestras[n - 1] / 1e3);
+            }
+        }
+
+        private static double percentil(long[] ordenadas, int n, double q) {
+            return ordenadas[Math.max(0, (int) Math.ceil(q * n) - 1)] / 1e3;
+        }
+    }
+
+    /**
+     * Reproduce las primeras `operaciones` operaciones de la traza con `hilos`
+     * hilos. Los hilos toman las operaciones en orden de un contador común,
+     * así que dos operaciones cercanas pueden ejecutarse en otro orden; las
+     * que fallan por eso (por ejemplo una inscripción a una materia que otro
+     * hilo acaba de cerrar) se cuentan como fallas y no cortan la reproducción.
+     *
+     * @param tasa operaciones por segundo, o 0 para no esperar entre
+     *             operaciones.
+     */
+    static Resultado reproducir(SistemaSIU siu, Traza traza, int operaciones, double tasa, int hilos)
+            throws InterruptedException {
+        Resultado r = new Resultado(operaciones);
+        AtomicInteger siguiente = new AtomicInteger();
+        double intervalo = tasa > 0 ? 1e9 / tasa : 0;
+        long inicio = System.nanoTime() + 10_000_000;
+        Thread[] trabajadores = new Thread[hilos];
+        for (int h = 0; h < hilos; h++) {
+            trabajadores[h] = new Thread(() -> {
+                int i;
+                while ((i = siguiente.getAndIncrement()) < operaciones) {
+                    long programada = inicio + (long) (i * intervalo);
+                    long ahora;
+                    while ((ahora = System.nanoTime()) < programada) {
+                        if (programada - ahora > ESPERA_ACTIVA_NS) {
+                            LockSupport.parkNanos(programada - ahora - ESPERA_ACTIVA_NS);
+                        } else {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    if (intervalo == 0) {
+                        programada = ahora;
+                    }
+                    try {
+                        ejecutar(siu, traza, i);
+                    } catch (RuntimeException e) {
+                        r.fallidas[i] = true;
+                    }
+                    r.latencias[i] = System.nanoTime() - programada;
+                }
+            }, "reproductor-" + h);
+            trabajadores[h].start();
+        }
+        for (Thread t : trabajadores) {
+            t.join();
+        }
+        return r;
+    }
+
+    private static void ejecutar(SistemaSIU siu, Traza traza, int i) {
+        DatosInscripcion datos = traza.datos;
+        int tipo = traza.tipos[i];
+        String carrera = datos.carreraDeMateria[traza.materias[i]];
+        String materia = datos.nombreDeMateria[traza.materias[i]];
+        if (tipo == Traza.INSCRIBIR) {
+            siu.inscribir(datos.libretas[traza.estudiantes[i]], carrera, materia);
+        } else if (tipo == Traza.AGREGAR_DOCENTE) {
+            siu.agregarDocente(CARGOS[traza.extras[i]], carrera, materia);
+        } else if (tipo == Traza.CERRAR_MATERIA) {
+            siu.cerrarMateria(materia, carrera);
+        } else if (tipo == Traza.INSCRIPTOS) {
+            siu.inscriptos(materia, carrera);
+        } else if (tipo == Traza.EXCEDE_CUPO) {
+            siu.excedeCupo(materia, carrera);
+        } else if (tipo == Traza.MATERIAS_INSCRIPTAS) {
+            siu.materiasInscriptas(datos.libretas[traza.estudiantes[i]]);
+        } else {
+            siu.materias(datos.carreras[traza.extras[i]]);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package aed.carga;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Secuencia de operaciones sobre un DatosInscripcion, como la de un período
+ * de inscripción: mayoría de inscripciones concentradas con distribución de
+ * Zipf en las materias más populares, consultas sobre las mismas materias,
+ * docentes que se agregan y algunas materias poco populares que se cierran.
+ *
+ * La operación i es (tipos[i], materias[i], estudiantes[i], extras[i]);
+ * estudiantes y materias son índices en los datos y extras es el ordinal del
+ * cargo docente o el índice de la carrera, según el tipo. Al generarla se
+ * evita inscribir dos veces al mismo estudiante en una materia y operar sobre
+ * una materia después de cerrarla, así que reproducida en orden no falla
+ * ninguna operación.
+ */
+final class Traza {
+
+    static final int INSCRIBIR = 0;
+    static final int AGREGAR_DOCENTE = 1;
+    static final int CERRAR_MATERIA = 2;
+    static final int INSCRIPTOS = 3;
+    static final int EXCEDE_CUPO = 4;
+    static final int MATERIAS_INSCRIPTAS = 5;
+    static final int MATERIAS = 6;
+
+    static final String[] NOMBRES = {
+            "inscribir", "agregarDocente", "cerrarMateria", "inscriptos", "excedeCupo",
+            "materiasInscriptas", "materias" };
+
+    // proporción de cada tipo de operación, en el orden de NOMBRES
+    static final double[] MEZCLA_POR_DEFECTO = { 0.80, 0.03, 0.001, 0.06, 0.05, 0.05, 0.009 };
+
+    // intentos para encontrar una inscripción nueva antes de consultar en su lugar
+    private static final int INTENTOS = 32;
+    private static final int VERSION = 1;
+
+    final DatosInscripcion datos;
+    final double exponente;
+    final int[] tipos;
+    final int[] materias;
+    final int[] estudiantes;
+    final int[] extras;
+
+    private Traza(DatosInscripcion datos, double exponente, int operaciones) {
+        this.datos = datos;
+        this.exponente = exponente;
+        tipos = new int[operaciones];
+        materias = new int[operaciones];
+        estudiantes = new int[operaciones];
+        extras = new int[operaciones];
+    }
+
+    int size() {
+        return tipos.length;
+    }
+
+    /**
+     * Genera una traza de `operaciones` operaciones. Las materias de las
+     * inscripciones, docentes y consultas siguen una Zipf de exponente
+     * `exponente` sobre el orden de popularidad de los datos; los estudiantes
+     * y las carreras son uniformes, y los cierres eligen entre la mitad menos
+     * popular de las materias.
+     *
+     * @Complejidad: O(operaciones * log(materias)) esperado.
+     */
+    static Traza generar(DatosInscripcion datos, int operaciones, double exponente, double[] mezcla,
+            long semilla) {
+        Traza t = new Traza(datos, exponente, operaciones);
+        Random azar = new Random(semilla);
+        Zipf zipf = new Zipf(datos.cantMaterias, exponente);
+        double[] acumulada = new double[mezcla.length];
+        double suma = 0;
+        for (int i = 0; i < mezcla.length; i++) {
+            suma += mezcla[i];
+            acumulada[i] = suma;
+        }
+        boolean[] cerradas = new boolean[datos.cantMaterias];
+        HashSet<Long> inscripciones = new HashSet<>();
+        int abiertasPocoPopulares = datos.cantMaterias - datos.cantMaterias / 2;
+
+        for (int i = 0; i < operaciones; i++) {
+            double u = azar.nextDouble() * suma;
+            int tipo = 0;
+            while (tipo < acumulada.length - 1 && u >= acumulada[tipo]) {
+                tipo++;
+            }
+            if (tipo == CERRAR_MATERIA && abiertasPocoPopulares <= 1) {
+                tipo = INSCRIPTOS;
+            }
+            int materia = abierta(zipf, azar, cerradas);
+            int estudiante = azar.nextInt(datos.cantEstudiantes);
+            int extra = 0;
+            if (tipo == INSCRIBIR) {
+                int intentos = 0;
+                while (!inscripciones.add((long) materia * datos.cantEstudiantes + estudiante)) {
+                    if (++intentos == INTENTOS) {
+                        tipo = INSCRIPTOS;
+                        break;
+                    }
+                    materia = abierta(zipf, azar, cerradas);
+                    estudiante = azar.nextInt(datos.cantEstudiantes);
+                }
+            } else if (tipo == AGREGAR_DOCENTE) {
+                extra = azar.nextInt(4);
+            } else if (tipo == CERRAR_MATERIA) {
+                do {
+                    materia = datos.cantMaterias / 2 + azar.nextInt(datos.cantMaterias - datos.cantMaterias / 2);
+                } while (cerradas[materia]);
+                cerradas[materia] = true;
+                abiertasPocoPopulares--;
+            } else if (tipo == MATERIAS) {
+                extra = azar.nextInt(datos.cantCarreras);
+            }
+            t.tipos[i] = tipo;
+            t.materias[i] = materia;
+            t.estudiantes[i] = estudiante;
+            t.extras[i] = extra;
+        }
+        return t;
+    }
+
+    private static int abierta(Zipf zipf, Random azar, boolean[] cerradas) {
+        int m;
+        do {
+            m = zipf.muestra(azar);
+        } while (cerradas[m]);
+        return m;
+    }
+
+    /**
+     * Guarda la traza junto con los parámetros de sus datos, que se vuelven a
+     * generar al cargarla.
+     *
+     * @Complejidad: O(operaciones).
+     */
+    void guardar(Path archivo) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivo)))) {
+            out.writeInt(VERSION);
+            out.writeInt(datos.cantEstudiantes);
+            out.writeInt(datos.cantCarreras);
+            out.writeInt(datos.cantMaterias);
+            out.writeLong(datos.semilla);
+            out.writeDouble(exponente);
+            out.writeInt(size());
+            for (int i = 0; i < size(); i++) {
+                out.writeByte(tipos[i]);
+                out.writeInt(materias[i]);
+                out.writeInt(estudiantes[i]);
+                out.writeInt(extras[i]);
+            }
+        }
+    }
+
+    /**
+     * Carga una traza guardada con guardar.
+     *
+     * @Complejidad: O(operaciones) más lo que cuesta generar los datos.
+     */
+    static Traza cargar(Path archivo) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(archivo)))) {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Versión de traza desconocida: " + version);
+            }
+            DatosInscripcion datos = new DatosInscripcion(in.readInt(), in.readInt(), in.readInt(), in.readLong());
+            double exponente = in.readDouble();
+            Traza t = new Traza(datos, exponente, in.readInt());
+            for (int i = 0; i < t.size(); i++) {
+                t.tipos[i] = in.readByte();
+                t.materias[i] = in.readInt();
+                t.estudiantes[i] = in.readInt();
+                t.extras[i] = in.readInt();
+            }
+            return t;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package aed.carga;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Distribución de Zipf sobre los rangos 0..n-1: el rango r sale con
+ * probabilidad proporcional a 1 / (r + 1)^s. Con s cerca de 1, unas pocas
+ * materias (las de primer año) se llevan la mayor parte de las
+ * inscripciones.
+ */
+final class Zipf {
+
+    private final double[] acumulada;
+
+    /**
+     * @Complejidad: O(n).
+     */
+    Zipf(int n, double s) {
+        acumulada = new double[n];
+        double suma = 0;
+        for (int r = 0; r < n; r++) {
+            suma += 1 / Math.pow(r + 1, s);
+            acumulada[r] = suma;
+        }
+        for (int r = 0; r < n; r++) {
+            acumulada[r] /= suma;
+        }
+    }
+
+    /**
+     * Devuelve un rango al azar.
+     *
+     * @Complejidad: O(log n). Búsqueda binaria en la distribución acumulada.
+     */
+    int muestra(Random azar) {
+        int r = Arrays.binarySearch(acumulada, azar.nextDouble());
+        return Math.min(r >= 0 ? r : -r - 1, acumulada.length - 1);
+    }
+}
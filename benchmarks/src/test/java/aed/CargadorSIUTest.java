@@ -0,0 +1,60 @@
+package aed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Casos puntuales de CargadorSIU que se rompieron alguna vez.
+ */
+class CargadorSIUTest {
+
+    @TempDir
+    Path directorio;
+
+    private Path archivo(String nombre, String contenido) throws IOException {
+        return Files.write(directorio.resolve(nombre), contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void unaCarreraVaciaSeRechazaConSuLinea() throws IOException {
+        Path libretas = archivo("libretas", "1\n2\n");
+        Path planes = archivo("planes", "C\tAlfa\n\n\tBeta\nC\tGama\n");
+
+        IOException ex = assertThrows(IOException.class, () -> CargadorSIU.cargar(libretas, planes));
+
+        assertTrue(ex.getMessage().contains("línea 3"), ex.getMessage());
+    }
+
+    @Test
+    void unNombreDeMateriaVacioSeRechazaConSuLinea() throws IOException {
+        Path libretas = archivo("libretas", "1\n");
+        Path planes = archivo("planes", "C\tAlfa\r\nD\tBeta\tC\t\r\n");
+
+        IOException ex = assertThrows(IOException.class, () -> CargadorSIU.cargar(libretas, planes));
+
+        assertTrue(ex.getMessage().contains("línea 2"), ex.getMessage());
+    }
+
+    @Test
+    void lasLineasVaciasSeIgnoran() throws IOException {
+        Path libretas = archivo("libretas", "1\n\n2");
+        Path planes = archivo("planes", "\nC\tAlfa\tD\tUno\n\r\nC\tBeta");
+
+        SistemaSIU siu = CargadorSIU.cargar(libretas, planes);
+        siu.inscribir("1", "D", "Uno");
+        siu.inscribir("2", "C", "Beta");
+
+        assertEquals(1, siu.inscriptos("Alfa", "C"));
+        assertEquals(1, siu.inscriptos("Beta", "C"));
+        assertEquals(1, siu.materiasInscriptas("2"));
+    }
+}
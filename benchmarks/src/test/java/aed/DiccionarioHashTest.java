@@ -0,0 +1,95 @@
+package aed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Borrar en DiccionarioHash corre hacia atrás las entradas del grupo: tiene
+ * que dejar alcanzables las claves que chocan, también cuando el grupo da la
+ * vuelta al final de la tabla.
+ */
+class DiccionarioHashTest {
+
+    // "Aa" y "BB" tienen el mismo hashCode, y también cualquier concatenación
+    // de la misma cantidad de ellos
+    private static final String[] BLOQUES = { "Aa", "BB" };
+
+    /** Posición ideal en una tabla de 16, como DiccionarioHash#ideal. */
+    private static int ideal16(String k) {
+        return (k.hashCode() * 0x9E3779B9) >>> 28;
+    }
+
+    private static String conIdeal(String prefijo, String sufijo, int posicion) {
+        for (int i = 0;; i++) {
+            String k = prefijo + i + sufijo;
+            if (ideal16(k) == posicion) {
+                return k;
+            }
+        }
+    }
+
+    @Test
+    void borrarAlFinalDeLaTablaCorreElGrupoQueDaLaVuelta() {
+        // a y b chocan en la última posición; b queda en la 0, y c (ideal 0) en la 1
+        String a = conIdeal("p", "Aa", 15);
+        String b = a.substring(0, a.length() - 2) + "BB";
+        String c = conIdeal("q", "", 0);
+        DiccionarioHash<Integer> d = new DiccionarioHash<>();
+        d.definir(a, 1);
+        d.definir(b, 2);
+        d.definir(c, 3);
+
+        d.borrar(a);
+
+        assertFalse(d.esta(a));
+        assertEquals(2, d.obtener(b));
+        assertEquals(3, d.obtener(c));
+        assertEquals(2, d.size());
+
+        d.borrar(b);
+        assertNull(d.buscar(b));
+        assertEquals(3, d.obtener(c));
+        d.definir(a, 4);
+        assertEquals(4, d.obtener(a));
+        assertEquals(3, d.obtener(c));
+    }
+
+    @Test
+    void borrarClavesQueChocanLasDejaAlcanzables() {
+        ArrayList<String> claves = new ArrayList<>();
+        for (int m = 0; m < 32; m++) {
+            StringBuilder k = new StringBuilder();
+            for (int j = 0; j < 5; j++) {
+                k.append(BLOQUES[(m >> j) & 1]);
+            }
+            claves.add(k.toString());
+        }
+        for (int i = 0; i < 32; i++) {
+            claves.add("lu" + i);
+        }
+        DiccionarioHash<Integer> d = new DiccionarioHash<>();
+        HashMap<String, Integer> esperado = new HashMap<>();
+        Random random = new Random(1);
+        for (int paso = 0; paso < 5000; paso++) {
+            String k = claves.get(random.nextInt(claves.size()));
+            if (esperado.containsKey(k) && random.nextBoolean()) {
+                d.borrar(k);
+                esperado.remove(k);
+            } else {
+                d.definir(k, paso);
+                esperado.put(k, paso);
+            }
+            assertEquals(esperado.size(), d.size());
+            for (String c : claves) {
+                assertEquals(esperado.get(c), d.buscar(c), c);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package aed;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Casos puntuales de InstantaneaSIU que se rompieron alguna vez.
+ */
+class InstantaneaSIUTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void guardarReemplazaLaInstantaneaSinDejarTemporales() throws IOException {
+        InfoMateria[] info = {
+                new InfoMateria(new ParCarreraMateria[] { new ParCarreraMateria("C", "Alfa") }),
+                new InfoMateria(new ParCarreraMateria[] { new ParCarreraMateria("C", "Beta") }) };
+        SistemaSIU siu = new SistemaSIU(info, new String[] { "1", "2" });
+        Path archivo = directorio.resolve("siu.instantanea");
+        siu.inscribir("1", "C", "Alfa");
+        siu.guardarInstantanea(archivo);
+        siu.inscribir("2", "C", "Alfa");
+        siu.cerrarMateria("Beta", "C");
+        siu.guardarInstantanea(archivo);
+
+        SistemaSIU cargado = SistemaSIU.cargarInstantanea(archivo);
+
+        assertEquals(2, cargado.inscriptos("Alfa", "C"));
+        assertEquals(1, cargado.materias("C").length);
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            assertEquals(1, archivos.count());
+        }
+    }
+
+    @Test
+    void laAdmisionPorCupoSeGuardaEnLaInstantanea() throws IOException {
+        InfoMateria[] info = { new InfoMateria(new ParCarreraMateria[] { new ParCarreraMateria("C", "Alfa") }) };
+        SistemaSIU siu = new SistemaSIU(info, new String[] { "1" });
+        siu.admitirPorCupo(true);
+        Path archivo = directorio.resolve("siu.instantanea");
+        siu.guardarInstantanea(archivo);
+
+        SistemaSIU cargado = SistemaSIU.cargarInstantanea(archivo);
+        // sin docentes no hay cupo: el estudiante queda esperando
+        cargado.inscribir("1", "C", "Alfa");
+
+        assertEquals(0, cargado.inscriptos("Alfa", "C"));
+        assertEquals(0, cargado.materiasInscriptas("1"));
+    }
+
+    @Test
+    void laInstantaneaConservaLosDiccionarios() throws IOException {
+        InfoMateria[] info = {
+                new InfoMateria(new ParCarreraMateria[] { new ParCarreraMateria("C", "Alfa") }),
+                new InfoMateria(new ParCarreraMateria[] { new ParCarreraMateria("D", "Beta") }) };
+        FabricaDiccionarios fabrica = new FabricaDiccionarios(FabricaDiccionarios.Implementacion.TRIE,
+                FabricaDiccionarios.Implementacion.HASH, FabricaDiccionarios.Implementacion.TRIE);
+        SistemaSIU siu = new SistemaSIU(info, new String[] { "1" }, fabrica);
+        siu.inscribir("1", "C", "Alfa");
+        Path archivo = directorio.resolve("siu.instantanea");
+        siu.guardarInstantanea(archivo);
+
+        SistemaSIU cargado = SistemaSIU.cargarInstantanea(archivo);
+
+        assertEquals(FabricaDiccionarios.Implementacion.TRIE, cargado.fabrica().implementacionEstudiantes());
+        assertEquals(FabricaDiccionarios.Implementacion.HASH, cargado.fabrica().implementacionCarreras());
+        assertEquals(FabricaDiccionarios.Implementacion.TRIE, cargado.fabrica().implementacionMaterias());
+        assertInstanceOf(DiccionarioHash.class, cargado.carrerasDiccionario());
+        assertInstanceOf(Trie.class, cargado.carrerasDiccionario().obtener("C"));
+        assertEquals(1, cargado.inscriptos("Alfa", "C"));
+
+        // un catálogo congelado vuelve congelado
+        siu.congelarCatalogo();
+        siu.guardarInstantanea(archivo);
+        cargado = SistemaSIU.cargarInstantanea(archivo);
+
+        assertInstanceOf(TrieCongelado.class, cargado.carrerasDiccionario());
+        assertInstanceOf(TrieCongelado.class, cargado.carrerasDiccionario().obtener("D"));
+        assertArrayEquals(new String[] { "C", "D" }, cargado.carreras());
+        assertEquals(1, cargado.inscriptos("Alfa", "C"));
+    }
+}
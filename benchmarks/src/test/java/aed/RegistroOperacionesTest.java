@@ -0,0 +1,82 @@
+package aed;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Casos puntuales de RegistroOperaciones que se rompieron alguna vez.
+ */
+class RegistroOperacionesTest {
+
+    @TempDir
+    Path directorio;
+
+    private static SistemaSIU sistema() {
+        InfoMateria[] info = { new InfoMateria(new ParCarreraMateria[] { new ParCarreraMateria("C", "Alfa") }) };
+        return new SistemaSIU(info, new String[] { "1", "2" });
+    }
+
+    @Test
+    void reproducirRepiteLosCambiosDeAdmision() throws IOException {
+        Path archivo = directorio.resolve("siu.registro");
+        SistemaSIU siu = sistema();
+        try (RegistroOperaciones registro = new RegistroOperaciones(archivo, 0)) {
+            siu.registrarOperaciones(registro);
+            siu.admitirPorCupo(true);
+            siu.inscribir("1", "C", "Alfa");
+            siu.admitirPorCupo(false);
+            siu.inscribir("2", "C", "Alfa");
+        }
+
+        SistemaSIU reproducido = sistema();
+        RegistroOperaciones.reproducir(archivo, reproducido);
+
+        // "1" quedó esperando (sin docentes no hay cupo) y "2" entró sin límite
+        assertEquals(siu.inscriptos("Alfa", "C"), reproducido.inscriptos("Alfa", "C"));
+        assertEquals(1, reproducido.inscriptos("Alfa", "C"));
+        assertEquals(0, reproducido.materiasInscriptas("1"));
+        assertEquals(1, reproducido.materiasInscriptas("2"));
+    }
+
+    @Test
+    void operarDespuesDeCerrarFallaSinCambiarElEstado() throws IOException {
+        SistemaSIU siu = sistema();
+        RegistroOperaciones registro = new RegistroOperaciones(directorio.resolve("siu.registro"), 0);
+        siu.registrarOperaciones(registro);
+        siu.inscribir("1", "C", "Alfa");
+        registro.close();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(IllegalStateException.class,
+                    () -> siu.agregarDocente(SistemaSIU.CargoDocente.AY1, "C", "Alfa"));
+            assertThrows(IllegalStateException.class, () -> siu.inscribir("2", "C", "Alfa"));
+            assertThrows(IllegalStateException.class,
+                    () -> siu.inscribirLote(new Inscripcion[] { new Inscripcion("2", "C", "Alfa") }));
+            assertThrows(IllegalStateException.class, () -> siu.desinscribir("1", "C", "Alfa"));
+            assertThrows(IllegalStateException.class, () -> siu.cerrarMateria("Alfa", "C"));
+            assertThrows(IllegalStateException.class, () -> siu.admitirPorCupo(true));
+            // una secuencia que nunca llegó al disco tampoco se espera para siempre
+            assertThrows(IllegalStateException.class, () -> registro.esperar(2));
+        });
+        // lo registrado antes de cerrar ya es durable
+        registro.esperar(1);
+
+        assertArrayEquals(new int[] { 0, 0, 0, 0 }, siu.plantelDocente("Alfa", "C"));
+        assertEquals(1, siu.inscriptos("Alfa", "C"));
+        assertEquals(1, siu.materiasInscriptas("1"));
+        assertEquals(0, siu.materiasInscriptas("2"));
+        assertEquals(1, siu.metricas().getTotalInscriptos());
+        assertArrayEquals(new String[] { "Alfa" }, siu.materias("C"));
+        assertFalse(siu.admisionPorCupo());
+    }
+}
@@ -0,0 +1,277 @@
+package aed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Varios hilos inscriben, desinscriben, agregan docentes, inscriben lotes,
+ * consultan y cierran materias sobre el mismo SistemaSIU. Al terminar (sin
+ * operaciones en curso) se verifican los @InvRep de SistemaSIU, Materia,
+ * Libreta y DiccionarioEnteros, y que el estado sea el que dejaron las
+ * operaciones que terminaron bien.
+ *
+ * Cada hilo es dueño de los estudiantes con libreta i ≡ hilo (mod HILOS), así
+ * que sabe en qué materias inscribió a cada uno y nunca inscribe dos veces a
+ * un estudiante en la misma materia (que es una precondición de inscribir).
+ * Sólo se cierran las materias CERRABLES en adelante; los lotes usan las
+ * demás.
+ */
+class SistemaSIUConcurrenciaTest {
+
+    private static final int HILOS = 8;
+    private static final int OPERACIONES = 20000;
+    private static final int ESTUDIANTES = 400;
+    private static final int CARRERAS = 5;
+    private static final int MATERIAS = 40;
+    private static final int CERRABLES = 30;
+
+    private final String[] lus = new String[ESTUDIANTES];
+    // carrera y nombre del primer alias de cada materia
+    private final String[] carreraDe = new String[MATERIAS];
+    private final String[] nombreDe = new String[MATERIAS];
+    private final AtomicIntegerArray docentes = new AtomicIntegerArray(MATERIAS);
+    private final boolean[] cerrada = new boolean[MATERIAS];
+    private SistemaSIU siu;
+    private Materia[] materias;
+
+    private SistemaSIU armar() {
+        for (int i = 0; i < ESTUDIANTES; i++) {
+            lus[i] = i + "/" + (10 + i % 15);
+        }
+        InfoMateria[] info = new InfoMateria[MATERIAS];
+        for (int m = 0; m < MATERIAS; m++) {
+            int alias = 1 + m % 3;
+            ParCarreraMateria[] pares = new ParCarreraMateria[alias];
+            for (int j = 0; j < alias; j++) {
+                // nombres con prefijos compartidos y algún caracter fuera de ASCII
+                pares[j] = new ParCarreraMateria("Carrera " + (m + j) % CARRERAS, "Matemática " + m + "." + j);
+            }
+            info[m] = new InfoMateria(pares);
+            carreraDe[m] = pares[0].getCarrera();
+            nombreDe[m] = pares[0].getNombreMateria();
+        }
+        siu = new SistemaSIU(info, lus);
+        materias = new Materia[MATERIAS];
+        for (int m = 0; m < MATERIAS; m++) {
+            materias[m] = siu.resolver(carreraDe[m], nombreDe[m]).materia;
+        }
+        return siu;
+    }
+
+    @Test
+    void operacionesConcurrentesRespetanLosInvariantes() throws Exception {
+        armar();
+        // inscripciones[e] = materias en las que quedó inscripto e (sólo las
+        // toca el hilo dueño de e)
+        @SuppressWarnings("unchecked")
+        Set<Integer>[] inscripciones = new Set[ESTUDIANTES];
+        for (int e = 0; e < ESTUDIANTES; e++) {
+            inscripciones[e] = new HashSet<>();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> hilos = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            hilos.add(pool.submit(() -> operar(hilo, inscripciones)));
+        }
+        for (Future<?> f : hilos) {
+            f.get();
+        }
+        pool.shutdown();
+
+        verificarDiccionarioEnteros(siu.materiasEstudiante());
+        verificarCatalogo();
+        for (int m = 0; m < MATERIAS; m++) {
+            verificarMateria(m);
+        }
+        for (int e = 0; e < ESTUDIANTES; e++) {
+            verificarEstudiante(e, inscripciones[e]);
+        }
+    }
+
+    private void operar(int hilo, Set<Integer>[] inscripciones) {
+        Random azar = new Random(hilo);
+        SistemaSIU.CargoDocente[] cargos = SistemaSIU.CargoDocente.values();
+        for (int i = 0; i < OPERACIONES; i++) {
+            int e = hilo + HILOS * azar.nextInt(ESTUDIANTES / HILOS);
+            int m = azar.nextInt(MATERIAS);
+            int op = azar.nextInt(100);
+            try {
+                if (op < 40) {
+                    if (!inscripciones[e].contains(m)) {
+                        siu.inscribir(lus[e], carreraDe[m], nombreDe[m]);
+                        inscripciones[e].add(m);
+                    }
+                } else if (op < 55) {
+                    if (inscripciones[e].remove(m)) {
+                        siu.desinscribir(lus[e], carreraDe[m], nombreDe[m]);
+                    }
+                } else if (op < 70) {
+                    siu.agregarDocente(cargos[azar.nextInt(cargos.length)], carreraDe[m], nombreDe[m]);
+                    docentes.incrementAndGet(m);
+                } else if (op < 78) {
+                    inscribirLote(azar, hilo, inscripciones);
+                } else if (op < 88) {
+                    assertTrue(siu.materiasInscriptas(lus[e]) >= 0);
+                } else if (op < 90) {
+                    if (m >= CERRABLES) {
+                        siu.cerrarMateria(nombreDe[m], carreraDe[m]);
+                        synchronized (cerrada) {
+                            cerrada[m] = true;
+                        }
+                    }
+                } else if (op < 95) {
+                    assertTrue(siu.inscriptos(nombreDe[m], carreraDe[m]) >= 0);
+                } else {
+                    siu.excedeCupo(nombreDe[m], carreraDe[m]);
+                }
+            } catch (IllegalStateException | IllegalArgumentException | NullPointerException ex) {
+                // la materia se cerró (y quizás ya no está en los tries)
+                assertTrue(m >= CERRABLES, () -> "falló una operación sobre una materia abierta: " + ex);
+            }
+        }
+    }
+
+    private void inscribirLote(Random azar, int hilo, Set<Integer>[] inscripciones) {
+        int n = 2 + azar.nextInt(6);
+        ArrayList<Inscripcion> lote = new ArrayList<>();
+        ArrayList<int[]> pares = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            int e = hilo + HILOS * azar.nextInt(ESTUDIANTES / HILOS);
+            int m = azar.nextInt(CERRABLES);
+            boolean repetido = inscripciones[e].contains(m);
+            for (int[] par : pares) {
+                repetido |= par[0] == e && par[1] == m;
+            }
+            if (!repetido) {
+                lote.add(new Inscripcion(lus[e], carreraDe[m], nombreDe[m]));
+                pares.add(new int[] { e, m });
+            }
+        }
+        siu.inscribirLote(lote.toArray(new Inscripcion[0]));
+        for (int[] par : pares) {
+            inscripciones[par[0]].add(par[1]);
+        }
+    }
+
+    /**
+     * @InvRep de DiccionarioEnteros: cada clave tiene una posición propia y
+     * los contadores (materias por estudiante) no son negativos.
+     */
+    private void verificarDiccionarioEnteros(DiccionarioEnteros d) {
+        String[] claves = d.claves();
+        assertEquals(ESTUDIANTES, claves.length);
+        assertEquals(claves.length, d.size());
+        Set<Integer> posiciones = new HashSet<>();
+        for (String k : claves) {
+            int p = d.posicion(k);
+            assertTrue(p >= 0 && p < claves.length, "posición fuera de rango");
+            assertTrue(posiciones.add(p), "dos claves con la misma posición");
+            assertTrue(d.obtenerEnPosicion(p) >= 0, "contador negativo");
+        }
+    }
+
+    /**
+     * @InvRep de SistemaSIU y los alias de Materia: cada nombre de los tries
+     * lleva a una materia abierta que lo tiene entre sus alias, y las
+     * materias cerradas ya no figuran.
+     */
+    private void verificarCatalogo() {
+        DiccionarioString<DiccionarioString<Materia>> carreras = siu.carrerasDiccionario();
+        assertEquals(CARRERAS, carreras.size());
+        IdentityHashMap<Materia, Integer> nombres = new IdentityHashMap<>();
+        for (DiccionarioString<Materia> carrera : carreras.values()) {
+            for (String nombre : carrera.keys()) {
+                Materia mat = carrera.obtener(nombre);
+                assertNotNull(mat);
+                assertFalse(mat.estaCerrada(), "una materia cerrada sigue en los tries");
+                boolean esAlias = false;
+                for (Tupla<DiccionarioString<Materia>, String> alias : mat.nombresEnCarreras()) {
+                    esAlias |= alias.fst() == carrera && alias.snd().equals(nombre);
+                }
+                assertTrue(esAlias, "el nombre no es alias de su materia");
+                nombres.merge(mat, 1, Integer::sum);
+            }
+        }
+        for (int m = 0; m < MATERIAS; m++) {
+            int esperado = cerrada[m] ? 0 : materias[m].nombresEnCarreras().size();
+            assertEquals(esperado, nombres.getOrDefault(materias[m], 0), "alias en los tries de " + m);
+        }
+    }
+
+    /**
+     * @InvRep de Materia: inscriptos sin repetir, cada uno con su entrada en
+     * la libreta apuntando a su posición, y plantel no negativo (y con todos
+     * los docentes agregados).
+     */
+    private void verificarMateria(int m) {
+        Materia mat = materias[m];
+        assertEquals(cerrada[m], mat.estaCerrada());
+        assertFalse(mat.nombresEnCarreras().isEmpty());
+        synchronized (mat) {
+            Set<Integer> vistos = new HashSet<>();
+            IteradorEnteros it = mat.iteradorAlumnos();
+            for (int p = 0; it.haySiguiente(); p++) {
+                int id = it.siguiente();
+                assertTrue(vistos.add(id), "inscripto repetido en " + m);
+                if (!mat.estaCerrada()) {
+                    Libreta libreta = siu.libreta(id);
+                    int e = libreta.entrada(mat);
+                    assertTrue(e >= 0, "inscripto sin entrada en su libreta");
+                    assertEquals(p, libreta.posicion(e), "la libreta no apunta a la posición del inscripto");
+                }
+            }
+            assertEquals(vistos.size(), mat.cantidadInscriptos());
+        }
+        int total = 0;
+        for (int cantidad : mat.plantelDocente()) {
+            assertTrue(cantidad >= 0);
+            total += cantidad;
+        }
+        if (!mat.estaCerrada()) {
+            assertEquals(docentes.get(m), total, "docentes de " + m);
+        }
+    }
+
+    /**
+     * @InvRep de Libreta y contadores de SistemaSIU: reconciliada la libreta,
+     * tiene cada materia abierta del estudiante una sola vez, ninguna
+     * cerrada, y el contador coincide.
+     */
+    private void verificarEstudiante(int e, Set<Integer> inscripciones) {
+        int contador = siu.materiasInscriptas(lus[e]);
+        Libreta libreta = siu.libreta(siu.materiasEstudiante().posicion(lus[e]));
+        ArrayList<Materia> enLibreta = libreta.materias();
+        IdentityHashMap<Materia, Boolean> distintas = new IdentityHashMap<>();
+        for (Materia mat : enLibreta) {
+            assertFalse(mat.estaCerrada(), "la libreta reconciliada tiene una materia cerrada");
+            assertTrue(distintas.put(mat, Boolean.TRUE) == null, "materia repetida en la libreta");
+        }
+        int abiertas = 0;
+        for (int m : inscripciones) {
+            if (!cerrada[m]) {
+                abiertas++;
+                assertSame(Boolean.TRUE, distintas.get(materias[m]), "falta una inscripción en la libreta");
+            }
+        }
+        assertEquals(abiertas, enLibreta.size());
+        assertEquals(abiertas, contador);
+    }
+}
@@ -0,0 +1,191 @@
+package aed;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Casos puntuales de SistemaSIU que se rompieron alguna vez.
+ */
+class SistemaSIUTest {
+
+    private static SistemaSIU sistema(String carrera, String[] materias, String[] lus) {
+        InfoMateria[] info = new InfoMateria[materias.length];
+        for (int i = 0; i < materias.length; i++) {
+            info[i] = new InfoMateria(new ParCarreraMateria[] { new ParCarreraMateria(carrera, materias[i]) });
+        }
+        return new SistemaSIU(info, lus);
+    }
+
+    @Test
+    void inscribirLoteConUnaMateriaCerradaInscribeAlResto() {
+        SistemaSIU siu = sistema("C", new String[] { "Alfa", "Beta", "Gama" }, new String[] { "1", "2" });
+        siu.cerrarMateria("Beta", "C");
+        Inscripcion[] lote = {
+                new Inscripcion("1", "C", "Alfa"),
+                new Inscripcion("2", "C", "Beta"),
+                new Inscripcion("2", "C", "Gama") };
+
+        assertThrows(IllegalStateException.class, () -> siu.inscribirLote(lote));
+
+        assertEquals(1, siu.inscriptos("Alfa", "C"));
+        assertEquals(1, siu.inscriptos("Gama", "C"));
+        assertEquals(1, siu.materiasInscriptas("1"));
+        assertEquals(1, siu.materiasInscriptas("2"));
+    }
+
+    @Test
+    void inscribirLoteConUnaMateriaInexistenteInscribeAlResto() {
+        SistemaSIU siu = sistema("C", new String[] { "Alfa" }, new String[] { "1" });
+        Inscripcion[] lote = {
+                new Inscripcion("1", "C", "Alfa"),
+                new Inscripcion("1", "C", "Omega"),
+                new Inscripcion("1", "D", "Alfa") };
+
+        assertThrows(IllegalStateException.class, () -> siu.inscribirLote(lote));
+
+        assertEquals(1, siu.inscriptos("Alfa", "C"));
+        assertEquals(1, siu.materiasInscriptas("1"));
+    }
+
+    @Test
+    void losPromovidosCuentanEnLasMateriasMasInscriptas() {
+        SistemaSIU siu = sistema("C", new String[] { "Alfa", "Beta" }, new String[] { "1", "2", "3" });
+        siu.inscribir("1", "C", "Beta");
+        siu.admitirPorCupo(true);
+        siu.inscribir("1", "C", "Alfa");
+        siu.inscribir("2", "C", "Alfa");
+        siu.inscribir("3", "C", "Alfa");
+        assertArrayEquals(new String[] { "Beta" }, siu.materiasMasInscriptas("C", "", 1));
+
+        // sin cupo hasta tener un docente de cada cargo; con el último entran los tres
+        for (SistemaSIU.CargoDocente cargo : SistemaSIU.CargoDocente.values()) {
+            siu.agregarDocente(cargo, "C", "Alfa");
+        }
+
+        assertEquals(3, siu.inscriptos("Alfa", "C"));
+        assertArrayEquals(new String[] { "Alfa" }, siu.materiasMasInscriptas("C", "", 1));
+        assertArrayEquals(new String[] { "Alfa", "Beta" }, siu.materiasMasInscriptas("C", "", 2));
+    }
+
+    @Test
+    void lasCotasRedondeadasNoCambianLasMasInscriptas() {
+        SistemaSIU siu = sistema("C", new String[] { "Alfa", "Beta" }, new String[] { "1", "2", "3", "4", "5" });
+        ReferenciaMateria alfa = siu.resolver("C", "Alfa");
+        // Alfa publica cota 4 con 3 inscriptos; Beta la alcanza con 4
+        for (String lu : new String[] { "1", "2", "3" }) {
+            siu.inscribir(lu, alfa);
+        }
+        for (String lu : new String[] { "1", "2", "3", "4" }) {
+            siu.inscribir(lu, "C", "Beta");
+        }
+        assertArrayEquals(new String[] { "Beta", "Alfa" }, siu.materiasMasInscriptas("C", "", 2));
+
+        // Alfa pasa su cota (ahora 8) y la conserva al congelar el catálogo
+        siu.inscribir("4", alfa);
+        siu.inscribir("5", alfa);
+        siu.congelarCatalogo();
+        assertArrayEquals(new String[] { "Alfa" }, siu.materiasMasInscriptas("C", "", 1));
+    }
+
+    /** Cada inscripto de la materia tiene en su libreta la posición en la que está. */
+    private static void assertPosicionesEnLibretas(SistemaSIU siu, String carrera, String materia) {
+        Materia mat = siu.carrerasDiccionario().obtener(carrera).obtener(materia);
+        synchronized (mat) {
+            IteradorEnteros it = mat.iteradorAlumnos();
+            for (int p = 0; it.haySiguiente(); p++) {
+                Libreta libreta = siu.libreta(it.siguiente());
+                assertEquals(p, libreta.posicion(libreta.entrada(mat)));
+            }
+        }
+    }
+
+    @Test
+    void desinscribirDelMedioMueveAlUltimoYActualizaSuLibreta() {
+        SistemaSIU siu = sistema("C", new String[] { "Alfa", "Beta" }, new String[] { "1", "2", "3", "4" });
+        for (String lu : new String[] { "1", "2", "3", "4" }) {
+            siu.inscribir(lu, "C", "Alfa");
+        }
+        siu.inscribir("4", "C", "Beta");
+
+        // "4", el último, pasa al lugar de "2"
+        siu.desinscribir("2", "C", "Alfa");
+        assertPosicionesEnLibretas(siu, "C", "Alfa");
+        assertEquals(3, siu.inscriptos("Alfa", "C"));
+        assertEquals(0, siu.materiasInscriptas("2"));
+
+        siu.inscribir("2", "C", "Alfa");
+        // desinscribir a "4" usa la entrada que se movió
+        siu.desinscribir("4", "C", "Alfa");
+        assertPosicionesEnLibretas(siu, "C", "Alfa");
+        assertEquals(3, siu.inscriptos("Alfa", "C"));
+        assertEquals(1, siu.materiasInscriptas("1"));
+        assertEquals(1, siu.materiasInscriptas("2"));
+        assertEquals(1, siu.materiasInscriptas("4"));
+        assertThrows(IllegalArgumentException.class, () -> siu.desinscribir("4", "C", "Alfa"));
+
+        siu.cerrarMateria("Alfa", "C");
+        assertEquals(0, siu.materiasInscriptas("1"));
+        assertEquals(0, siu.materiasInscriptas("2"));
+        assertEquals(0, siu.materiasInscriptas("3"));
+        assertEquals(1, siu.materiasInscriptas("4"));
+    }
+
+    @Test
+    void cerrarUnaMateriaLaQuitaDeLosListadosDeTodasSusCarreras() {
+        InfoMateria[] info = {
+                new InfoMateria(new ParCarreraMateria[] {
+                        new ParCarreraMateria("C", "Alfa"), new ParCarreraMateria("D", "Intro") }),
+                new InfoMateria(new ParCarreraMateria[] { new ParCarreraMateria("C", "Beta") }),
+                new InfoMateria(new ParCarreraMateria[] { new ParCarreraMateria("D", "Gama") }) };
+        SistemaSIU siu = new SistemaSIU(info, new String[] { "1" });
+        // los dos listados quedan calculados antes del cierre
+        assertArrayEquals(new String[] { "Alfa", "Beta" }, siu.materias("C"));
+        assertArrayEquals(new String[] { "Gama", "Intro" }, siu.materias("D"));
+
+        siu.cerrarMateria("Alfa", "C");
+
+        assertArrayEquals(new String[] { "Beta" }, siu.materias("C"));
+        assertArrayEquals(new String[] { "Gama" }, siu.materias("D"));
+    }
+
+    private static String[] nombres(InfoMateria[] info) {
+        String[] res = new String[info.length];
+        for (int i = 0; i < info.length; i++) {
+            res[i] = info[i].getParesCarreraMateria()[0].getNombreMateria();
+        }
+        return res;
+    }
+
+    @Test
+    void lasMateriasExcedidasSiguenAInscribirAgregarDocenteYCerrar() {
+        SistemaSIU siu = sistema("C", new String[] { "Alfa", "Beta", "Gama", "Delta" },
+                new String[] { "1", "2", "3", "4" });
+        // sin docentes el cupo es 0: el exceso es la cantidad de inscriptos
+        for (String lu : new String[] { "1", "2", "3" }) {
+            siu.inscribir(lu, "C", "Alfa");
+        }
+        siu.inscribir("1", "C", "Beta");
+        siu.inscribir("2", "C", "Beta");
+        siu.inscribir("1", "C", "Gama");
+        assertArrayEquals(new String[] { "Alfa", "Beta", "Gama" }, nombres(siu.materiasExcedidas(5)));
+        assertArrayEquals(new String[] { "Alfa" }, nombres(siu.materiasExcedidas(1)));
+
+        for (String lu : new String[] { "2", "3", "4" }) {
+            siu.inscribir(lu, "C", "Gama");
+        }
+        assertArrayEquals(new String[] { "Gama", "Alfa" }, nombres(siu.materiasExcedidas(2)));
+
+        // con un docente de cada cargo el cupo de Gama es 20
+        for (SistemaSIU.CargoDocente cargo : SistemaSIU.CargoDocente.values()) {
+            siu.agregarDocente(cargo, "C", "Gama");
+        }
+        assertArrayEquals(new String[] { "Alfa", "Beta" }, nombres(siu.materiasExcedidas(5)));
+
+        siu.cerrarMateria("Alfa", "C");
+        assertArrayEquals(new String[] { "Beta" }, nombres(siu.materiasExcedidas(5)));
+        assertEquals(0, siu.materiasExcedidas(0).length);
+    }
+}
@@ -0,0 +1,155 @@
+package aed;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Las búsquedas de Trie, TrieCongelado y TrieComprimido recorren los bytes
+ * UTF-8 de la clave sin codificarla: tienen que llegar al mismo lugar que
+ * String#getBytes, con caracteres de 1 a 4 bytes y surrogates sueltos.
+ * Además, borrar en TrieComprimido tiene que volver a fusionar las aristas que
+ * se partieron al definir.
+ */
+class TrieTest {
+
+    private static final String[] CLAVES = {
+            "Algebra", "Algoritmos", "Análisis", "Análisis II", "Teoría €", "Teoría 😀", "Teoría 😀😁", "?",
+            "x\uDC00y", "á", "ã" };
+
+    private static List<DiccionarioString<Integer>> diccionarios() {
+        Trie<Integer> trie = new Trie<>();
+        TrieComprimido<Integer> comprimido = new TrieComprimido<>();
+        for (int i = 0; i < CLAVES.length; i++) {
+            trie.definir(CLAVES[i], i);
+            comprimido.definir(CLAVES[i], i);
+        }
+        return List.of(trie, comprimido, new TrieCongelado<>(trie));
+    }
+
+    @Test
+    void buscaPorLosMismosBytesQueGetBytes() {
+        for (DiccionarioString<Integer> d : diccionarios()) {
+            String nombre = d.getClass().getSimpleName();
+            for (int i = 0; i < CLAVES.length; i++) {
+                assertTrue(d.esta(CLAVES[i]), nombre + " " + CLAVES[i]);
+                assertEquals(i, d.obtener(CLAVES[i]), nombre + " " + CLAVES[i]);
+            }
+            // un surrogate suelto se codifica como '?'
+            assertEquals(7, d.buscar("\uD83D"), nombre);
+            assertEquals(8, d.buscar("x?y"), nombre);
+            assertNull(d.buscar("Teoría 😁"), nombre);
+            assertNull(d.buscar("Análisis I"), nombre);
+            // "á" y "ã" comparten el primer byte: la arista se corta a mitad del caracter
+            assertNull(d.buscar("à"), nombre);
+            assertFalse(d.esta("Anális"), nombre);
+            assertFalse(d.esta("Teoría 😀😀"), nombre);
+        }
+    }
+
+    @Test
+    void elevaLasCotasDelCaminoDeLaClave() {
+        for (DiccionarioString<Integer> d : diccionarios()) {
+            String nombre = d.getClass().getSimpleName();
+            d.elevarCota("Teoría 😀😁", 5);
+            assertEquals(5, d.cota(""), nombre);
+            assertEquals(5, d.cota("Teor"), nombre);
+            assertEquals(5, d.cota("Teoría 😀"), nombre);
+            assertEquals(5, d.cota("Teoría 😀😁"), nombre);
+            assertEquals(0, d.cota("Teoría €"), nombre);
+            assertEquals(0, d.cota("Análisis"), nombre);
+            assertEquals(0, d.cota("Teoría 😁"), nombre);
+        }
+    }
+
+    @Test
+    void borrarEnTrieComprimidoFusionaLaAristaPartida() {
+        TrieComprimido<Integer> d = new TrieComprimido<>();
+        d.definir("Algoritmos", 1);
+        d.definir("Algebra", 2); // parte la arista en "Alg"
+        d.elevarCota("Algoritmos", 5);
+        assertEquals(4, d.nodos());
+
+        // "Alg" queda sin significado y con un solo hijo: se fusiona con "oritmos"
+        d.borrar("Algebra");
+        assertEquals(2, d.nodos());
+        assertEquals(1, d.obtener("Algoritmos"));
+        assertNull(d.buscar("Algebra"));
+        assertFalse(d.esta("Alg"));
+        assertEquals(5, d.cota("Algoritmos"));
+        assertEquals(5, d.cota(""));
+
+        d.definir("Algebra", 2);
+        d.definir("Alg", 3);
+        // "Alg" tiene dos hijos: sólo pierde el significado
+        d.borrar("Alg");
+        assertEquals(4, d.nodos());
+        // la hoja se quita y el padre, sin significado, se fusiona con "ebra"
+        d.borrar("Algoritmos");
+        assertEquals(2, d.nodos());
+        assertEquals(2, d.obtener("Algebra"));
+        assertArrayEquals(new String[] { "Algebra" }, d.keys());
+        assertEquals(1, d.size());
+    }
+
+    @Test
+    void borrarEnTrieComprimidoFusionaConElUnicoHijo() {
+        TrieComprimido<Integer> d = new TrieComprimido<>();
+        d.definir("Ana", 1);
+        d.definir("Anabel", 2);
+        d.definir("á", 3);
+        d.definir("ã", 4); // parte la arista a mitad del caracter
+
+        d.borrar("Ana");
+        d.borrar("á");
+
+        assertNull(d.buscar("Ana"));
+        assertEquals(2, d.obtener("Anabel"));
+        assertNull(d.buscar("á"));
+        assertEquals(4, d.obtener("ã"));
+        assertEquals(3, d.nodos());
+        assertArrayEquals(new String[] { "Anabel", "ã" }, d.keys());
+    }
+
+    @Test
+    void borrarEnTrieComprimidoCoincideConUnMapa() {
+        TrieComprimido<Integer> d = new TrieComprimido<>();
+        TreeMap<String, Integer> esperado = new TreeMap<>();
+        ArrayList<String> claves = new ArrayList<>();
+        for (int largo = 1; largo <= 5; largo++) {
+            for (int m = 0; m < 1 << largo; m++) {
+                StringBuilder k = new StringBuilder();
+                for (int j = 0; j < largo; j++) {
+                    k.append((m >> j & 1) == 0 ? 'a' : 'b');
+                }
+                claves.add(k.toString());
+            }
+        }
+        Random random = new Random(1);
+        for (int paso = 0; paso < 3000; paso++) {
+            String k = claves.get(random.nextInt(claves.size()));
+            if (esperado.containsKey(k)) {
+                d.borrar(k);
+                esperado.remove(k);
+            } else {
+                d.definir(k, paso);
+                esperado.put(k, paso);
+            }
+            for (String c : claves) {
+                assertEquals(esperado.get(c), d.buscar(c), c);
+            }
+            assertArrayEquals(esperado.keySet().toArray(new String[0]), d.keys());
+            // sin nodos de más: todo nodo sin significado (salvo la raíz) tiene dos hijos
+            assertTrue(d.nodos() <= 2 * esperado.size() + 1, "nodos: " + d.nodos());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package aed;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Construye un SistemaSIU leyendo los datos de archivos en lugar de arreglos
+ * en memoria. Los archivos se mapean a memoria y se recorren byte a byte: cada
+ * nombre se decodifica directamente a su String definitivo y se inserta en los
+ * tries, sin armar ParCarreraMateria, InfoMateria ni arreglos de LUs.
+ *
+ * Formato (UTF-8, líneas terminadas en '\n' o "\r\n", las líneas vacías se
+ * ignoran):
+ * <ul>
+ * <li>libretas: una libreta universitaria por línea.</li>
+ * <li>planes: una materia por línea, como una secuencia de pares
+ * carrera TAB nombre, separados también por TAB:
+ * {@code carrera1\tnombre1\tcarrera2\tnombre2...}</li>
+ * </ul>
+ * Una carrera o un nombre de materia vacío es un error: se lanza
+ * IOException con el número de línea.
+ */
+public class CargadorSIU {
+
+    private CargadorSIU() {
+    }
+
+    /**
+     * Carga el sistema desde los archivos de libretas y de planes. Equivale a
+     * `new SistemaSIU(infoMaterias, libretas)` con los mismos datos.
+     *
+     * @Complejidad: O(|archivo de libretas| + |archivo de planes|), es decir
+     *               O(Σ|lu| + Σ(|c| + |m|)).
+     */
+    public static SistemaSIU cargar(Path libretas, Path planes) throws IOException {
+        SistemaSIU siu = new SistemaSIU();
+        try (LectorCampos lector = new LectorCampos(libretas)) {
+            int separador;
+            do {
+                separador = lector.leerCampo();
+                if (lector.largo() > 0) {
+                    siu.agregarEstudiante(lector.campo());
+                }
+            } while (separador != LectorCampos.FIN);
+        }
+        try (LectorCampos lector = new LectorCampos(planes)) {
+            int separador;
+            do {
+                separador = lector.leerCampo();
+                if (lector.largo() == 0 && separador != '\t') {
+                    continue; // línea vacía
+                }
+                Materia mat = new Materia();
+                ArrayList<Tupla<DiccionarioString<Materia>, String>> info = new ArrayList<>();
+                while (true) {
+                    if (lector.largo() == 0) {
+                        throw new IOException("Carrera vacía en la línea " + lector.linea() + " de " + planes);
+                    }
+                    String carrera = lector.campo();
+                    if (separador != '\t') {
+                        throw new IOException("Falta el nombre de la materia de la carrera " + carrera
+                                + " en la línea " + lector.linea() + " de " + planes);
+                    }
+                    separador = lector.leerCampo();
+                    if (lector.largo() == 0) {
+                        throw new IOException("Nombre de materia vacío para la carrera " + carrera
+                                + " en la línea " + lector.linea() + " de " + planes);
+                    }
+                    siu.agregarAlias(mat, info, carrera, lector.campo());
+                    if (separador != '\t') {
+                        break;
+                    }
+                    separador = lector.leerCampo();
+                }
+                mat.init(info);
+            } while (separador != LectorCampos.FIN);
+        }
+        return siu;
+    }
+
+    /**
+     * Recorre un archivo mapeado a memoria separándolo en campos. Los archivos
+     * de más de VENTANA bytes se mapean de a una ventana por vez. El canal se
+     * abre sólo para mapear cada ventana: el mapeo sigue valiendo después de
+     * cerrarlo, y si el mapeo falla el canal no queda abierto.
+     */
+    static class LectorCampos implements AutoCloseable {
+
+        static final int FIN = -1;
+        private static final long VENTANA = 1L << 30;
+
+        private final Path archivo;
+        private final long largoArchivo;
+        private MappedByteBuffer buffer;
+        private long inicioVentana;
+        private byte[] campo = new byte[64];
+        private int largo;
+        // línea del último campo leído (desde 1) y de la que sigue
+        private int linea = 1;
+        private int siguienteLinea = 1;
+
+        LectorCampos(Path archivo) throws IOException {
+            this.archivo = archivo;
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+                largoArchivo = canal.size();
+                mapear(canal, 0);
+            }
+        }
+
+        private void mapear(FileChannel canal, long desde) throws IOException {
+            inicioVentana = desde;
+            buffer = canal.map(FileChannel.MapMode.READ_ONLY, desde, Math.min(VENTANA, largoArchivo - desde));
+        }
+
+        private int leer() throws IOException {
+            if (!buffer.hasRemaining()) {
+                long siguiente = inicioVentana + buffer.limit();
+                if (siguiente >= largoArchivo) {
+                    return FIN;
+                }
+                try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+                    mapear(canal, siguiente);
+                }
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        /**
+         * Lee el próximo campo, hasta un TAB, un fin de línea o el fin del
+         * archivo, y devuelve cuál de ellos lo terminó ('\t', '\n' o FIN).
+         *
+         * @Complejidad: O(largo del campo).
+         */
+        int leerCampo() throws IOException {
+            largo = 0;
+            linea = siguienteLinea;
+            int b;
+            while ((b = leer()) != FIN && b != '\t' && b != '\n') {
+                if (largo == campo.length) {
+                    campo = Arrays.copyOf(campo, largo * 2);
+                }
+                campo[largo++] = (byte) b;
+            }
+            if (largo > 0 && campo[largo - 1] == '\r') {
+                largo--;
+            }
+            if (b == '\n') {
+                siguienteLinea++;
+            }
+            return b;
+        }
+
+        int largo() {
+            return largo;
+        }
+
+        /**
+         * Devuelve el número de línea (desde 1) del último campo leído.
+         */
+        int linea() {
+            return linea;
+        }
+
+        String campo() {
+            return new String(campo, 0, largo, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+            buffer = null;
+        }
+    }
+}
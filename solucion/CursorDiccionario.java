@@ -0,0 +1,27 @@
+package aed;
+
+/**
+ * Recorre las definiciones de un DiccionarioString en orden lexicográfico de
+ * sus claves. Al crearse no está posicionado en ninguna; cada llamada a
+ * `avanzar` pasa a la siguiente.
+ *
+ * El diccionario no debe modificarse mientras se usa el cursor.
+ */
+interface CursorDiccionario<V> {
+
+    /**
+     * Pasa a la siguiente definición. Devuelve false si no hay más.
+     */
+    public boolean avanzar();
+
+    /**
+     * Devuelve la clave de la definición actual. El String se crea recién la
+     * primera vez que se pide.
+     */
+    public String clave();
+
+    /**
+     * Devuelve el significado de la definición actual.
+     */
+    public V valor();
+}
@@ -0,0 +1,268 @@
+package aed;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Diccionario de claves String a enteros primitivos. Cada clave se asocia una
+ * única vez (en `definir`) a una posición de `valores`, y a partir de ahí
+ * obtener y modificar su valor no crea objetos: no hay Integer ni funciones de
+ * por medio. El índice de claves a posiciones es cualquier DiccionarioString
+ * (ver FabricaDiccionarios); el de SistemaSIU, por defecto, una tabla de hash
+ * (FabricaDiccionarios.POR_DEFECTO). El constructor sin argumentos usa un
+ * Trie.
+ *
+ * @Concurrencia: obtener, sumarYObtener, incrementar y decrementar son
+ *                atómicas y pueden llamarse desde varios hilos. definir y
+ *                borrar cambian la estructura y no deben ejecutarse en
+ *                paralelo con ninguna otra operación.
+ *
+ * @InvRep(DiccionarioEnteros d) = {
+ *                               d.posiciones != null ^ d.valores != null ^
+ *                               ∀ k in d.posiciones. 0 <= d.posiciones[k] < d.tope ^
+ *                               ∀ k1, k2 in d.posiciones. k1 != k2 => d.posiciones[k1] != d.posiciones[k2] ^
+ *                               d.tope <= d.valores.length() ^ 0 <= d.cantLibres <= d.tope ^
+ *                               Set(d.libres[0..d.cantLibres)) ∩ Set(d.posiciones.values()) = ∅ ^
+ *                               |d.posiciones| + d.cantLibres = d.tope
+ *                               }
+ */
+public class DiccionarioEnteros {
+
+    private final DiccionarioString<Integer> posiciones;
+    private AtomicIntegerArray valores;
+    private int tope;
+    // posiciones de claves borradas, para reutilizar
+    private int[] libres = new int[0];
+    private int cantLibres = 0;
+
+    public DiccionarioEnteros() {
+        this(new Trie<>());
+    }
+
+    /**
+     * Crea el diccionario vacío, usando posiciones (que debe estar vacío)
+     * como índice de claves.
+     *
+     * @Complejidad: O(1).
+     */
+    DiccionarioEnteros(DiccionarioString<Integer> posiciones) {
+        this.posiciones = posiciones;
+        valores = new AtomicIntegerArray(16);
+        tope = 0;
+    }
+
+    /**
+     * Crea el diccionario con todas las claves definidas en valorInicial,
+     * construyendo el índice de claves en paralelo. La clave claves[i] ocupa
+     * la posición i.
+     *
+     * requiere {las claves son distintas y no vacías}
+     *
+     * @Complejidad: O(Σ|k|) de trabajo total.
+     *
+     * @see Trie#construirEnParalelo
+     */
+    public DiccionarioEnteros(String[] claves, int valorInicial, ForkJoinPool pool) {
+        this(Trie.construirEnParalelo(claves, i -> i, pool), claves.length, valorInicial);
+    }
+
+    /**
+     * Crea el diccionario a partir de un índice ya armado, en el que las
+     * claves tienen las posiciones 0..cantidad-1, todas con valorInicial.
+     *
+     * @Complejidad: O(cantidad).
+     *
+     * @see FabricaDiccionarios#estudiantes(String[], ForkJoinPool)
+     */
+    DiccionarioEnteros(DiccionarioString<Integer> posiciones, int cantidad, int valorInicial) {
+        this.posiciones = posiciones;
+        valores = new AtomicIntegerArray(Math.max(16, cantidad));
+        tope = cantidad;
+        if (valorInicial != 0) {
+            for (int i = 0; i < tope; i++) {
+                valores.set(i, valorInicial);
+            }
+        }
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see Diccionario#esta
+     */
+    public boolean esta(String k) {
+        return posiciones.esta(k);
+    }
+
+    /**
+     * requiere {k no está definida}
+     *
+     * @Complejidad: O(|k|) amortizado.
+     *
+     * @see Diccionario#definir
+     */
+    public void definir(String k, int v) {
+        int p;
+        if (cantLibres > 0) {
+            p = libres[--cantLibres];
+        } else {
+            if (tope == valores.length()) {
+                AtomicIntegerArray nuevos = new AtomicIntegerArray(valores.length() * 2);
+                for (int i = 0; i < tope; i++) {
+                    nuevos.set(i, valores.get(i));
+                }
+                valores = nuevos;
+            }
+            p = tope++;
+        }
+        valores.set(p, v);
+        posiciones.definir(k, p);
+    }
+
+    /**
+     * requiere {k está definida}
+     *
+     * @Complejidad: O(|k|).
+     *
+     * @see Diccionario#obtener
+     */
+    public int obtener(String k) {
+        return valores.get(posiciones.obtener(k));
+    }
+
+    /**
+     * requiere {k está definida}
+     *
+     * @Complejidad: O(|k|) amortizado.
+     *
+     * @see Diccionario#borrar
+     */
+    public void borrar(String k) {
+        int p = posiciones.obtener(k);
+        posiciones.borrar(k);
+        if (cantLibres == libres.length) {
+            libres = Arrays.copyOf(libres, Math.max(4, libres.length * 2));
+        }
+        libres[cantLibres++] = p;
+    }
+
+    /**
+     * @Complejidad: O(1).
+     *
+     * @see Diccionario#size
+     */
+    public int size() {
+        return posiciones.size();
+    }
+
+    /**
+     * Devuelve los nodos del índice de claves.
+     *
+     * @see DiccionarioString#nodos
+     */
+    int nodos() {
+        return posiciones.nodos();
+    }
+
+    /**
+     * Devuelve las claves definidas, ordenadas lexicográficamente.
+     *
+     * @Complejidad: O(Σ|k|).
+     *
+     * @see DiccionarioString#keys
+     */
+    public String[] claves() {
+        return posiciones.keys();
+    }
+
+    /**
+     * Devuelve la posición de k en `valores`. Es un identificador denso que
+     * no cambia mientras k siga definida.
+     *
+     * @Complejidad: O(|k|).
+     */
+    int posicion(String k) {
+        return posiciones.obtener(k);
+    }
+
+    /**
+     * Devuelve el valor de la clave que ocupa la posición p.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see #posicion
+     */
+    int obtenerEnPosicion(int p) {
+        return valores.get(p);
+    }
+
+    /**
+     * Suma uno al valor de la clave que ocupa la posición p.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see #posicion
+     */
+    void incrementarPosicion(int p) {
+        valores.incrementAndGet(p);
+    }
+
+    /**
+     * Resta uno al valor de la clave que ocupa la posición p.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see #posicion
+     */
+    void decrementarPosicion(int p) {
+        valores.decrementAndGet(p);
+    }
+
+    /**
+     * Suma delta al valor de la clave que ocupa la posición p.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see #posicion
+     */
+    void sumarEnPosicion(int p, int delta) {
+        valores.addAndGet(p, delta);
+    }
+
+    /**
+     * Suma delta al valor de k y devuelve el valor resultante.
+     *
+     * <p>
+     * requiere {k está definida}
+     * <p>
+     * asegura {α(this).data[k] = α(old(this)).data[k] + delta ^ res = α(this).data[k]}
+     *
+     * @Complejidad: O(|k|). No crea objetos y es atómica.
+     */
+    public int sumarYObtener(String k, int delta) {
+        return valores.addAndGet(posiciones.obtener(k), delta);
+    }
+
+    /**
+     * Suma uno al valor de k.
+     *
+     * @Complejidad: O(|k|).
+     *
+     * @see #sumarYObtener
+     */
+    public void incrementar(String k) {
+        valores.incrementAndGet(posiciones.obtener(k));
+    }
+
+    /**
+     * Resta uno al valor de k.
+     *
+     * @Complejidad: O(|k|).
+     *
+     * @see #sumarYObtener
+     */
+    public void decrementar(String k) {
+        valores.decrementAndGet(posiciones.obtener(k));
+    }
+}
@@ -0,0 +1,316 @@
+package aed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Tabla de hash con direccionamiento abierto y sondeo lineal. Sirve para los
+ * índices que casi sólo se consultan por clave exacta (por ejemplo el de LUs):
+ * una búsqueda calcula el hash de la clave una vez y compara en general una
+ * sola entrada, en lugar de bajar un nodo por byte como Trie.
+ *
+ * Junto a cada clave se guarda su hash, así que al sondear se compara primero
+ * el entero y sólo se llama a equals si coincide, y al agrandar la tabla no
+ * se vuelve a calcular. Borrar corre hacia atrás las entradas siguientes del
+ * mismo grupo en lugar de dejar lápidas.
+ *
+ * No guarda las claves ordenadas: cursor ordena una copia de las entradas, y
+ * cursorConPrefijo y mejores usan las implementaciones por defecto de
+ * DiccionarioString, que recorren todo.
+ *
+ * pred enGrupo(t, i) { ∀ j en el camino cíclico de ideal(t.hashes[i]) a i.
+ * t.claves[j] != null }
+ *
+ * @InvRep(DiccionarioHash t) = {
+ *                           |t.claves| = |t.hashes| = |t.valores| es potencia de 2 ^
+ *                           t.mascara = |t.claves| - 1 ^
+ *                           2^(32 - t.desplazamiento) = |t.claves| ^
+ *                           t.size = |{i : t.claves[i] != null}| ^
+ *                           3 * t.size <= 2 * |t.claves| ^
+ *                           ∀ i. t.claves[i] != null => (t.claves[i] != "" ^
+ *                               t.hashes[i] = t.claves[i].hashCode() ^ enGrupo(t, i)) ^
+ *                           ∀ i, j. i != j ^ t.claves[i] != null => t.claves[i] != t.claves[j]
+ *                           }
+ */
+public class DiccionarioHash<V> implements DiccionarioString<V> {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private String[] claves = new String[CAPACIDAD_INICIAL];
+    private int[] hashes = new int[CAPACIDAD_INICIAL];
+    private Object[] valores = new Object[CAPACIDAD_INICIAL];
+    private int mascara = CAPACIDAD_INICIAL - 1;
+    // 32 - log2(|claves|): ideal se queda con los bits altos del producto
+    private int desplazamiento = 32 - Integer.numberOfTrailingZeros(CAPACIDAD_INICIAL);
+    private int size = 0;
+
+    public DiccionarioHash() {
+    }
+
+    /**
+     * Posición ideal de una clave con hash h (hash de Fibonacci): multiplica
+     * por 2^32 / φ y toma los bits altos, así que claves con hashes parecidos
+     * (como las LUs, que difieren en pocos caracteres) quedan repartidas.
+     */
+    private int ideal(int h) {
+        return (h * 0x9E3779B9) >>> desplazamiento;
+    }
+
+    /**
+     * Devuelve la posición de k, o -1 si no está.
+     *
+     * @Complejidad: O(|k|) para el hash (que String guarda) y O(1) sondeos
+     * esperados.
+     */
+    private int posicion(String k) {
+        int h = k.hashCode();
+        for (int i = ideal(h); claves[i] != null; i = (i + 1) & mascara) {
+            if (hashes[i] == h && claves[i].equals(k)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @Complejidad: O(|k|) esperado.
+     *
+     * @see Diccionario#esta
+     */
+    @Override
+    public boolean esta(String k) {
+        return posicion(k) >= 0;
+    }
+
+    /**
+     * Como en Trie, la clave vacía se ignora.
+     *
+     * @Complejidad: O(|k|) esperado y amortizado: la tabla se duplica al
+     * superar 2/3 de ocupación.
+     *
+     * @see Diccionario#definir
+     */
+    @Override
+    public void definir(String k, V value) {
+        if (k.equals("")) {
+            return;
+        }
+        int h = k.hashCode();
+        int i = ideal(h);
+        while (claves[i] != null) {
+            if (hashes[i] == h && claves[i].equals(k)) {
+                valores[i] = value;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = k;
+        hashes[i] = h;
+        valores[i] = value;
+        size++;
+        if (3 * size > 2 * claves.length) {
+            agrandar();
+        }
+    }
+
+    /**
+     * Duplica la tabla y reubica las entradas con el hash guardado.
+     *
+     * @Complejidad: O(|claves|).
+     */
+    private void agrandar() {
+        String[] anteriores = claves;
+        int[] hashesAnteriores = hashes;
+        Object[] valoresAnteriores = valores;
+        int capacidad = anteriores.length * 2;
+        String[] nuevas = new String[capacidad];
+        int[] nuevosHashes = new int[capacidad];
+        Object[] nuevosValores = new Object[capacidad];
+        mascara = capacidad - 1;
+        desplazamiento--;
+        for (int j = 0; j < anteriores.length; j++) {
+            if (anteriores[j] != null) {
+                int i = ideal(hashesAnteriores[j]);
+                while (nuevas[i] != null) {
+                    i = (i + 1) & mascara;
+                }
+                nuevas[i] = anteriores[j];
+                nuevosHashes[i] = hashesAnteriores[j];
+                nuevosValores[i] = valoresAnteriores[j];
+            }
+        }
+        hashes = nuevosHashes;
+        valores = nuevosValores;
+        claves = nuevas;
+    }
+
+    /**
+     * @Complejidad: O(|k|) esperado.
+     *
+     * @see Diccionario#obtener
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V obtener(String k) {
+        return (V) valores[posicion(k)];
+    }
+
+    /**
+     * @Complejidad: O(|k|) esperado.
+     *
+     * @see DiccionarioString#buscar
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V buscar(String k) {
+        int i = posicion(k);
+        return i < 0 ? null : (V) valores[i];
+    }
+
+    /**
+     * Borra k y corre hacia atrás las entradas siguientes del grupo que no
+     * quedarían alcanzables desde su posición ideal.
+     *
+     * @Complejidad: O(|k|) esperado.
+     *
+     * @see Diccionario#borrar
+     */
+    @Override
+    public void borrar(String k) {
+        int i = posicion(k);
+        size--;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mascara;
+            if (claves[j] == null) {
+                break;
+            }
+            int d = ideal(hashes[j]);
+            // la entrada j puede ocupar el hueco i si su posición ideal no
+            // está en el tramo cíclico (i, j]
+            boolean alcanzable = i <= j ? (i < d && d <= j) : (i < d || d <= j);
+            if (!alcanzable) {
+                claves[i] = claves[j];
+                hashes[i] = hashes[j];
+                valores[i] = valores[j];
+                i = j;
+            }
+        }
+        claves[i] = null;
+        valores[i] = null;
+    }
+
+    /**
+     * @Complejidad: O(1).
+     *
+     * @see Diccionario#size
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Devuelve la capacidad de la tabla: cada posición, ocupada o no, ocupa
+     * memoria.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see DiccionarioString#nodos
+     */
+    @Override
+    public int nodos() {
+        return claves.length;
+    }
+
+    /**
+     * @Complejidad: O(|k|) esperado + O(f).
+     *
+     * @see DiccionarioString#modificar
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void modificar(String k, Function<V, V> f) {
+        int i = posicion(k);
+        valores[i] = f.apply((V) valores[i]);
+    }
+
+    /**
+     * Devuelve un cursor sobre una copia de las definiciones, ordenada como
+     * los cursores de Trie.
+     *
+     * @Complejidad: O(|claves| + n log n * |k|), con n = size: ordena las
+     * claves al crearlo.
+     *
+     * @see DiccionarioString#cursor
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public CursorDiccionario<V> cursor() {
+        Integer[] orden = new Integer[size];
+        int n = 0;
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != null) {
+                orden[n++] = i;
+            }
+        }
+        Arrays.sort(orden, (a, b) -> Trie.comparar(claves[a], claves[b]));
+        String[] ordenadas = new String[n];
+        Object[] significados = new Object[n];
+        for (int i = 0; i < n; i++) {
+            ordenadas[i] = claves[orden[i]];
+            significados[i] = valores[orden[i]];
+        }
+        return new CursorDiccionario<V>() {
+            private int i = -1;
+
+            @Override
+            public boolean avanzar() {
+                return ++i < ordenadas.length;
+            }
+
+            @Override
+            public String clave() {
+                return ordenadas[i];
+            }
+
+            @Override
+            public V valor() {
+                return (V) significados[i];
+            }
+        };
+    }
+
+    /**
+     * Retorna las claves ordenadas como las de Trie.
+     *
+     * @Complejidad: O(|claves| + n log n * |k|).
+     *
+     * @see #cursor
+     */
+    @Override
+    public String[] keys() {
+        String[] keys = new String[size];
+        CursorDiccionario<V> c = cursor();
+        for (int i = 0; c.avanzar(); i++) {
+            keys[i] = c.clave();
+        }
+        return keys;
+    }
+
+    /**
+     * Retorna los significados, en el orden de `keys`.
+     *
+     * @Complejidad: O(|claves| + n log n * |k|).
+     */
+    @Override
+    public ArrayList<V> values() {
+        ArrayList<V> values = new ArrayList<>(size);
+        CursorDiccionario<V> c = cursor();
+        while (c.avanzar()) {
+            values.add(c.valor());
+        }
+        return values;
+    }
+}
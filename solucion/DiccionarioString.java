@@ -0,0 +1,158 @@
+package aed;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Diccionario con claves de tipo String que además permite recorrer sus
+ * claves y significados en orden lexicográfico y modificar un significado en
+ * el lugar. Es lo que el Sistema SIU necesita de sus índices, y permite
+ * intercambiar la implementación (Trie, TrieComprimido, TrieCongelado,
+ * DiccionarioHash) sin cambiar el sistema (ver FabricaDiccionarios).
+ */
+interface DiccionarioString<V> extends Diccionario<String, V> {
+
+	/**
+	 * proc buscar(in d: DiccionarioString<V>, in k: String): V
+	 * <p>
+	 * asegura {(k ∈ d.data ∧ res = d.data[k]) ∨ (k /∈ d.data ∧ res = null)}
+	 */
+	V buscar(String k);
+
+	/**
+	 * proc modificar(inout d: DiccionarioString<V>, in k: String, in f: V -> V)
+	 * <p>
+	 * requiere {d = D0 ∧ k ∈ d.data}
+	 * <p>
+	 * asegura {d.data = setKey(D0.data, k, f(D0.data[k]))}
+	 */
+	void modificar(String k, Function<V, V> f);
+
+	/**
+	 * Devuelve un cursor sobre las definiciones, en orden lexicográfico de las
+	 * claves. No arma ningún arreglo: cada clave se construye sólo si se la
+	 * pide, y se puede dejar de avanzar en cualquier momento.
+	 */
+	CursorDiccionario<V> cursor();
+
+	/**
+	 * Devuelve un cursor sobre las definiciones cuyas claves empiezan con
+	 * prefijo, en orden lexicográfico.
+	 * <p>
+	 * La implementación por defecto recorre todo el diccionario; las que
+	 * ordenan sus claves por prefijo la redefinen para arrancar directamente
+	 * del nodo del prefijo.
+	 *
+	 * @Complejidad: O(Σ|k|) en esta implementación.
+	 */
+	default CursorDiccionario<V> cursorConPrefijo(String prefijo) {
+		CursorDiccionario<V> todos = cursor();
+		return new CursorDiccionario<V>() {
+			@Override
+			public boolean avanzar() {
+				while (todos.avanzar()) {
+					if (todos.clave().startsWith(prefijo)) {
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public String clave() {
+				return todos.clave();
+			}
+
+			@Override
+			public V valor() {
+				return todos.valor();
+			}
+		};
+	}
+
+	/**
+	 * Avisa que el puntaje de la definición de k puede valer hasta cota. Las
+	 * implementaciones que guardan en cada nodo una cota superior de los
+	 * puntajes de su subárbol la elevan a lo largo del camino de k; la cota
+	 * nunca baja, así que sigue siendo válida si después el puntaje baja o k
+	 * se borra. Por defecto no hace nada.
+	 * <p>
+	 * Es seguro llamarlo en paralelo con otras llamadas a elevarCota y con
+	 * lecturas, pero no con definir o borrar.
+	 */
+	default void elevarCota(String k, int cota) {
+	}
+
+	/**
+	 * Devuelve la cota del subárbol de k: acota el puntaje de toda definición
+	 * cuya clave empiece con k. Las implementaciones que no guardan cotas
+	 * devuelven Integer.MAX_VALUE, que acota cualquier puntaje.
+	 */
+	default int cota(String k) {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Devuelve la cantidad de nodos (o de posiciones, en una tabla) que ocupa
+	 * el diccionario, para estimar su tamaño en memoria. Por defecto, la
+	 * cantidad de definiciones.
+	 */
+	default int nodos() {
+		return size();
+	}
+
+	/**
+	 * proc mejores(in d: DiccionarioString<V>, in prefijo: String, in k: int, in puntaje: V -> int): Arr<String>
+	 * <p>
+	 * requiere {k >= 0 ∧ para toda clave c de d.data, puntaje(d.data[c]) >= 0 y
+	 * es a lo sumo la mayor cota pasada a elevarCota(c, _)}
+	 * <p>
+	 * asegura {res contiene las min(k, #claves con prefijo) claves de d.data
+	 * que empiezan con prefijo y tienen mayor puntaje, ordenadas por puntaje
+	 * descendente y, a igual puntaje, lexicográficamente}
+	 * <p>
+	 * La implementación por defecto evalúa el puntaje de cada clave con el
+	 * prefijo manteniendo las k mejores en un heap.
+	 *
+	 * @Complejidad: O(Σ|k| + n log k) en esta implementación, con n la cantidad
+	 * de claves con el prefijo.
+	 */
+	default String[] mejores(String prefijo, int k, ToIntFunction<V> puntaje) {
+		if (k <= 0) {
+			return new String[0];
+		}
+		// El tope del heap es el peor de los k mejores vistos hasta ahora.
+		PriorityQueue<Tupla<Integer, String>> heap = new PriorityQueue<>(
+				(a, b) -> a.fst().equals(b.fst())
+						? b.snd().compareTo(a.snd())
+						: Integer.compare(a.fst(), b.fst()));
+		CursorDiccionario<V> c = cursorConPrefijo(prefijo);
+		while (c.avanzar()) {
+			heap.add(new Tupla<>(puntaje.applyAsInt(c.valor()), c.clave()));
+			if (heap.size() > k) {
+				heap.poll();
+			}
+		}
+		String[] res = new String[heap.size()];
+		for (int i = res.length - 1; i >= 0; i--) {
+			res[i] = heap.poll().snd();
+		}
+		return res;
+	}
+
+	/**
+	 * proc keys(in d: DiccionarioString<V>): Arr<String>
+	 * <p>
+	 * asegura {res contiene las claves de d.data ordenadas lexicográficamente}
+	 */
+	String[] keys();
+
+	/**
+	 * proc values(in d: DiccionarioString<V>): ArrayList<V>
+	 * <p>
+	 * asegura {res[i] = d.data[keys(d)[i]]}
+	 */
+	ArrayList<V> values();
+}
@@ -0,0 +1,105 @@
+package aed;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Elige la implementación de DiccionarioString de cada índice de SistemaSIU:
+ * el de estudiantes (LU -> posición en DiccionarioEnteros), el de carreras y
+ * el de materias de cada carrera.
+ *
+ * Los índices que se recorren en orden o por prefijo (carreras y materias)
+ * conviene que sean tries; el de estudiantes sólo se consulta por LU exacta,
+ * así que por defecto es una tabla de hash.
+ */
+public final class FabricaDiccionarios {
+
+    public enum Implementacion {
+        TRIE,
+        TRIE_COMPRIMIDO,
+        HASH
+    }
+
+    public static final FabricaDiccionarios POR_DEFECTO = new FabricaDiccionarios(
+            Implementacion.HASH, Implementacion.TRIE, Implementacion.TRIE_COMPRIMIDO);
+
+    private final Implementacion estudiantes;
+    private final Implementacion carreras;
+    private final Implementacion materias;
+
+    public FabricaDiccionarios(Implementacion estudiantes, Implementacion carreras, Implementacion materias) {
+        this.estudiantes = estudiantes;
+        this.carreras = carreras;
+        this.materias = materias;
+    }
+
+    Implementacion implementacionEstudiantes() {
+        return estudiantes;
+    }
+
+    Implementacion implementacionCarreras() {
+        return carreras;
+    }
+
+    Implementacion implementacionMaterias() {
+        return materias;
+    }
+
+    /**
+     * Crea un índice de estudiantes vacío.
+     *
+     * @Complejidad: O(1).
+     */
+    DiccionarioString<Integer> estudiantes() {
+        return crear(estudiantes);
+    }
+
+    /**
+     * Crea el índice de estudiantes con la LU lus[i] en la posición i. Si es
+     * un Trie lo construye en paralelo en el pool; si no, lo llena en el hilo
+     * actual.
+     *
+     * requiere {las LUs son distintas y no vacías}
+     *
+     * @Complejidad: O(Σ|lu|) de trabajo total.
+     *
+     * @see Trie#construirEnParalelo
+     */
+    DiccionarioString<Integer> estudiantes(String[] lus, ForkJoinPool pool) {
+        if (estudiantes == Implementacion.TRIE) {
+            return Trie.construirEnParalelo(lus, i -> i, pool);
+        }
+        DiccionarioString<Integer> res = crear(estudiantes);
+        for (int i = 0; i < lus.length; i++) {
+            res.definir(lus[i], i);
+        }
+        return res;
+    }
+
+    /**
+     * Crea un índice de carreras vacío.
+     *
+     * @Complejidad: O(1).
+     */
+    <V> DiccionarioString<V> carreras() {
+        return crear(carreras);
+    }
+
+    /**
+     * Crea el diccionario de materias de una carrera nueva.
+     *
+     * @Complejidad: O(1).
+     */
+    <V> DiccionarioString<V> materias() {
+        return crear(materias);
+    }
+
+    private static <V> DiccionarioString<V> crear(Implementacion implementacion) {
+        if (implementacion == Implementacion.TRIE) {
+            return new Trie<>();
+        } else if (implementacion == Implementacion.TRIE_COMPRIMIDO) {
+            return new TrieComprimido<>();
+        } else {
+            return new DiccionarioHash<>();
+        }
+    }
+}
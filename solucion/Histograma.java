@@ -0,0 +1,175 @@
+package aed;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contador de llamadas e histograma de latencias en nanosegundos, con
+ * cubetas logarítmicas: los valores menores a SUB tienen una cubeta cada
+ * uno, y cada potencia de 2 a partir de SUB se parte en SUB cubetas
+ * iguales. Un percentil se informa como el límite superior de su cubeta, que
+ * se pasa del valor real en menos de 1/SUB (6,25%).
+ *
+ * Contar y registrar no reservan memoria (salvo la primera vez que un
+ * LongAdder se expande por contención) y no toman locks: registrar
+ * incrementa una cubeta con una operación atómica y suma a un LongAdder.
+ *
+ * @InvRep(Histograma h) = {
+ *                         |h.cubetas| = CUBETAS ^
+ *                         h.cubetas[i] = cantidad de valores v registrados con cubeta(v) = i ^
+ *                         h.cantidad >= Σ h.cubetas[i] ^
+ *                         h.suma = Σ valores registrados ^ h.maximo = máx valores registrados
+ *                         } (salvo durante un registrar o un reiniciar)
+ */
+final class Histograma implements HistogramaMBean {
+
+    private static final int BITS_SUB = 4;
+    private static final int SUB = 1 << BITS_SUB;
+    // SUB cubetas exactas y SUB por cada exponente de BITS_SUB a 62 (un long
+    // no negativo no llega a 2^63)
+    static final int CUBETAS = (63 - BITS_SUB + 1) * SUB;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    // llamadas contadas, se hayan medido o no
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Devuelve la cubeta de v >= 0.
+     *
+     * @Complejidad: O(1).
+     */
+    static int cubeta(long v) {
+        if (v < SUB) {
+            return (int) v;
+        }
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        return ((e - BITS_SUB + 1) << BITS_SUB) + (int) ((v >>> (e - BITS_SUB)) & (SUB - 1));
+    }
+
+    /**
+     * Devuelve el menor valor de la cubeta i.
+     *
+     * @Complejidad: O(1).
+     */
+    static long minimo(int i) {
+        if (i < SUB) {
+            return i;
+        }
+        return (long) (SUB + (i & (SUB - 1))) << ((i >>> BITS_SUB) - 1);
+    }
+
+    /**
+     * Cuenta n llamadas, sin medirlas.
+     *
+     * @Complejidad: O(1).
+     */
+    void contar(long n) {
+        cantidad.add(n);
+    }
+
+    /**
+     * Registra una latencia de nanos nanosegundos (las negativas cuentan como
+     * 0).
+     *
+     * @Complejidad: O(1).
+     */
+    void registrar(long nanos) {
+        long v = Math.max(nanos, 0);
+        cubetas.getAndIncrement(cubeta(v));
+        suma.add(v);
+        long m = maximo.get();
+        while (v > m && !maximo.compareAndSet(m, v)) {
+            m = maximo.get();
+        }
+    }
+
+    /**
+     * Devuelve el valor (en nanosegundos) que no supera la fracción q de los
+     * registrados, o 0 si no hay ninguno. Lee las cubetas de a una, así que
+     * con registros concurrentes es aproximado.
+     *
+     * @Complejidad: O(CUBETAS).
+     */
+    long percentil(double q) {
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            total += cubetas.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(q * total));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cubetas.get(i);
+            if (acumulado >= objetivo) {
+                long limite = i + 1 < CUBETAS ? minimo(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(limite, maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    @Override
+    public long getCantidad() {
+        return cantidad.sum();
+    }
+
+    /**
+     * Devuelve la cantidad de latencias registradas.
+     *
+     * @Complejidad: O(CUBETAS).
+     */
+    @Override
+    public long getMuestras() {
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            total += cubetas.get(i);
+        }
+        return total;
+    }
+
+    @Override
+    public double getPromedioMicros() {
+        long muestras = getMuestras();
+        return muestras == 0 ? 0 : suma.sum() / 1e3 / muestras;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentil(0.5) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentil(0.99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return percentil(0.999) / 1e3;
+    }
+
+    @Override
+    public double getMaximoMicros() {
+        return maximo.get() / 1e3;
+    }
+
+    /**
+     * Vuelve a cero. Los registros concurrentes pueden quedar contados o no.
+     *
+     * @Complejidad: O(CUBETAS).
+     */
+    @Override
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        cantidad.reset();
+        suma.reset();
+        maximo.set(0);
+    }
+}
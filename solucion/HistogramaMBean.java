@@ -0,0 +1,26 @@
+package aed;
+
+/**
+ * Vista JMX de un Histograma: cantidad de llamadas de una operación de
+ * SistemaSIU y latencias en microsegundos de las que se midieron.
+ *
+ * @see MetricasSIU#exportar
+ */
+public interface HistogramaMBean {
+
+    long getCantidad();
+
+    long getMuestras();
+
+    double getPromedioMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaximoMicros();
+
+    void reiniciar();
+}
@@ -0,0 +1,25 @@
+package aed;
+
+public class Inscripcion {
+    String estudiante;
+    String carrera;
+    String nombreMateria;
+
+    public Inscripcion(String estudiante, String carrera, String nombreMateria) {
+        this.estudiante = estudiante;
+        this.carrera = carrera;
+        this.nombreMateria = nombreMateria;
+    }
+
+    public String getEstudiante() {
+        return this.estudiante;
+    }
+
+    public String getCarrera() {
+        return this.carrera;
+    }
+
+    public String getNombreMateria() {
+        return this.nombreMateria;
+    }
+}
@@ -0,0 +1,271 @@
+package aed;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Instantánea binaria del estado de un SistemaSIU, para volver a levantar el
+ * servicio sin repetir el constructor ni las inscripciones.
+ *
+ * Formato (enteros de 4 bytes big-endian; un String es su largo en bytes
+ * seguido de sus bytes UTF-8):
+ * <pre>
+ * MAGIA VERSION
+ * admisionPorCupo                          (desde la versión 3; 0 o 1)
+ * estudiantes carreras materias congelado  (desde la versión 4)
+ * cantEstudiantes  lu*                     (en orden lexicográfico)
+ * cantCarreras     carrera*                (en orden lexicográfico)
+ * cantMaterias     materia*
+ * materia = prof jtp ay1 ay2
+ *           cantAlias (indiceCarrera nombre)*
+ *           cantInscriptos indiceEstudiante*    (en cualquier orden)
+ *           cantEspera indiceEstudiante*    (desde la versión 2; en orden de llegada)
+ * </pre>
+ *
+ * estudiantes, carreras y materias son el ordinal de la
+ * FabricaDiccionarios.Implementacion de cada índice, y congelado (0 o 1) si
+ * el catálogo estaba congelado: al cargar se usan los mismos diccionarios.
+ * Las versiones anteriores se cargan con FabricaDiccionarios.POR_DEFECTO.
+ *
+ * Sólo se guardan las materias abiertas. Los contadores de materias por
+ * estudiante no se escriben: son la cantidad de materias abiertas en las que
+ * figura cada estudiante y se recalculan al cargar, así que siempre coinciden
+ * con las listas de inscriptos.
+ */
+class InstantaneaSIU {
+
+    private static final int MAGIA = 0x53495531; // "SIU1"
+    private static final int VERSION = 4;
+
+    private InstantaneaSIU() {
+    }
+
+    /**
+     * Escribe la instantánea de siu en archivo. Mientras escribe tiene el
+     * catálogo en modo lectura, así que ninguna materia sale de los tries, y
+     * cada materia se escribe con su lock tomado (en el orden catálogo ->
+     * materia, como el resto de SistemaSIU), así que cada una queda
+     * consistente aunque haya inscripciones concurrentes. Una materia que se
+     * cierra mientras tanto sigue en los tries hasta que se suelte el
+     * catálogo: se la saltea, y la cantidad de materias se completa al final.
+     *
+     * Escribe primero un archivo temporal en el mismo directorio, lo fuerza a
+     * disco y lo mueve sobre archivo de forma atómica: si el proceso se cae a
+     * mitad de camino, archivo sigue siendo la instantánea anterior.
+     *
+     * @Complejidad: O(Σ|lu| + Σ|c| + Σ(|c| + |m|) + Σ|m.inscriptos|). Los
+     *               inscriptos ya son posiciones del DiccionarioEnteros, así
+     *               que se traducen a la tabla de LUs sin buscarlos.
+     */
+    static void guardar(SistemaSIU siu, Path archivo) throws IOException {
+        Path destino = archivo.toAbsolutePath();
+        Path temporal = Files.createTempFile(destino.getParent(), destino.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                escribir(siu, canal);
+                canal.force(true);
+            }
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private static void escribir(SistemaSIU siu, FileChannel canal) throws IOException {
+        long stamp = siu.catalogo().readLock();
+        try {
+            // no se cierra: cerrarlo cerraría el canal
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(canal), 1 << 16));
+            out.writeInt(MAGIA);
+            out.writeInt(VERSION);
+            out.writeInt(siu.admisionPorCupo() ? 1 : 0);
+            FabricaDiccionarios fabrica = siu.fabrica();
+            out.writeInt(fabrica.implementacionEstudiantes().ordinal());
+            out.writeInt(fabrica.implementacionCarreras().ordinal());
+            out.writeInt(fabrica.implementacionMaterias().ordinal());
+            out.writeInt(siu.catalogoCongelado() ? 1 : 0);
+
+            DiccionarioEnteros estudiantes = siu.materiasEstudiante();
+            String[] lus = estudiantes.claves();
+            // posición en DiccionarioEnteros -> índice en la tabla de LUs
+            int[] indiceDePosicion = new int[lus.length == 0 ? 0 : maximaPosicion(estudiantes, lus) + 1];
+            out.writeInt(lus.length);
+            for (int i = 0; i < lus.length; i++) {
+                escribirString(out, lus[i]);
+                indiceDePosicion[estudiantes.posicion(lus[i])] = i;
+            }
+
+            DiccionarioString<DiccionarioString<Materia>> carreras = siu.carrerasDiccionario();
+            String[] nombresCarreras = carreras.keys();
+            ArrayList<DiccionarioString<Materia>> tries = carreras.values();
+            IdentityHashMap<DiccionarioString<Materia>, Integer> indiceCarrera = new IdentityHashMap<>();
+            out.writeInt(nombresCarreras.length);
+            for (int i = 0; i < nombresCarreras.length; i++) {
+                escribirString(out, nombresCarreras[i]);
+                indiceCarrera.put(tries.get(i), i);
+            }
+
+            IdentityHashMap<Materia, Boolean> escritas = new IdentityHashMap<>();
+            ArrayList<Materia> materias = new ArrayList<>();
+            for (DiccionarioString<Materia> trie : tries) {
+                for (Materia mat : trie.values()) {
+                    if (escritas.put(mat, Boolean.TRUE) == null) {
+                        materias.add(mat);
+                    }
+                }
+            }
+            int posicionCantidad = out.size();
+            out.writeInt(materias.size());
+            int cantMaterias = 0;
+            for (Materia mat : materias) {
+                synchronized (mat) {
+                    if (mat.estaCerrada()) {
+                        continue;
+                    }
+                    cantMaterias++;
+                    for (int cantidad : mat.plantelDocente()) {
+                        out.writeInt(cantidad);
+                    }
+                    ArrayList<Tupla<DiccionarioString<Materia>, String>> alias = mat.nombresEnCarreras();
+                    out.writeInt(alias.size());
+                    for (Tupla<DiccionarioString<Materia>, String> tupla : alias) {
+                        out.writeInt(indiceCarrera.get(tupla.fst()));
+                        escribirString(out, tupla.snd());
+                    }
+                    out.writeInt(mat.cantidadInscriptos());
+                    IteradorEnteros it = mat.iteradorAlumnos();
+                    while (it.haySiguiente()) {
+                        out.writeInt(indiceDePosicion[it.siguiente()]);
+                    }
+                    out.writeInt(mat.cantidadEnEspera());
+                    it = mat.iteradorEspera();
+                    while (it.haySiguiente()) {
+                        out.writeInt(indiceDePosicion[it.siguiente()]);
+                    }
+                }
+            }
+            out.flush();
+            if (cantMaterias != materias.size()) {
+                canal.write(ByteBuffer.allocate(4).putInt(0, cantMaterias), posicionCantidad);
+            }
+        } finally {
+            siu.catalogo().unlockRead(stamp);
+        }
+    }
+
+    private static int maximaPosicion(DiccionarioEnteros estudiantes, String[] lus) {
+        int max = 0;
+        for (String lu : lus) {
+            max = Math.max(max, estudiantes.posicion(lu));
+        }
+        return max;
+    }
+
+    private static void escribirString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Carga un sistema desde una instantánea. El archivo se mapea a memoria y
+     * se recorre una sola vez; los estudiantes se definen en el orden de la
+     * tabla, así que el índice de cada uno en la tabla es su posición en el
+     * DiccionarioEnteros y los inscriptos se cuentan sin volver a buscarlos.
+     * Si el catálogo estaba congelado, se lo congela al final.
+     *
+     * @Complejidad: O(tamaño del archivo), más O(Σ|c| + Σ|m|) si hay que
+     *               congelar el catálogo.
+     */
+    static SistemaSIU cargar(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) {
+                throw new IOException("Instantánea demasiado grande: " + archivo);
+            }
+            MappedByteBuffer in = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            int magia = in.getInt();
+            int version = in.getInt();
+            if (magia != MAGIA || version < 1 || version > VERSION) {
+                throw new IOException("No es una instantánea del Sistema SIU: " + archivo);
+            }
+            boolean admisionPorCupo = version >= 3 && in.getInt() != 0;
+            FabricaDiccionarios fabrica = FabricaDiccionarios.POR_DEFECTO;
+            boolean congelado = false;
+            if (version >= 4) {
+                FabricaDiccionarios.Implementacion[] implementaciones = FabricaDiccionarios.Implementacion.values();
+                fabrica = new FabricaDiccionarios(implementaciones[in.getInt()], implementaciones[in.getInt()],
+                        implementaciones[in.getInt()]);
+                congelado = in.getInt() != 0;
+            }
+            SistemaSIU siu = new SistemaSIU(fabrica);
+            siu.admitirPorCupo(admisionPorCupo);
+            DiccionarioEnteros estudiantes = siu.materiasEstudiante();
+
+            int cantEstudiantes = in.getInt();
+            for (int i = 0; i < cantEstudiantes; i++) {
+                siu.agregarEstudiante(leerString(in));
+            }
+
+            int cantCarreras = in.getInt();
+            ArrayList<DiccionarioString<Materia>> carreras = new ArrayList<>(cantCarreras);
+            for (int i = 0; i < cantCarreras; i++) {
+                carreras.add(siu.obtenerODefinirCarrera(leerString(in)));
+            }
+
+            int cantMaterias = in.getInt();
+            int[] plantel = new int[4];
+            for (int i = 0; i < cantMaterias; i++) {
+                Materia mat = new Materia();
+                for (int j = 0; j < plantel.length; j++) {
+                    plantel[j] = in.getInt();
+                }
+                mat.restaurarDocentes(plantel);
+                int cantAlias = in.getInt();
+                ArrayList<Tupla<DiccionarioString<Materia>, String>> info = new ArrayList<>(cantAlias);
+                for (int j = 0; j < cantAlias; j++) {
+                    DiccionarioString<Materia> carrera = carreras.get(in.getInt());
+                    String nombre = leerString(in);
+                    carrera.definir(nombre, mat);
+                    info.add(new Tupla<>(carrera, nombre));
+                }
+                mat.init(info);
+                int cantInscriptos = in.getInt();
+                for (int j = 0; j < cantInscriptos; j++) {
+                    int estudiante = in.getInt();
+                    mat.inscribirAlumno(estudiante, siu.libreta(estudiante));
+                    estudiantes.incrementarPosicion(estudiante);
+                }
+                siu.sumarInscriptos(cantInscriptos);
+                int cantEspera = version >= 2 ? in.getInt() : 0;
+                for (int j = 0; j < cantEspera; j++) {
+                    mat.esperar(in.getInt());
+                }
+                mat.elevarCotas(false);
+                siu.actualizarExceso(mat);
+            }
+            if (congelado) {
+                siu.congelarCatalogo();
+            }
+            return siu;
+        }
+    }
+
+    private static String leerString(MappedByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
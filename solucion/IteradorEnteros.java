@@ -0,0 +1,20 @@
+package aed;
+
+/**
+ * Iterador sobre enteros primitivos: como Iterador<Integer>, pero sin crear
+ * un Integer por elemento.
+ */
+interface IteradorEnteros {
+
+    /**
+     * Devuelve true si hay un elemento siguiente en la colección.
+     * 
+     */
+    public boolean haySiguiente();
+
+    /**
+     * Devuelve el elemento siguiente en la colección y avanza el iterador.
+     * 
+     */
+    public int siguiente();
+}
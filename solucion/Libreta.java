@@ -0,0 +1,168 @@
+package aed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Materias en las que está inscripto un estudiante (índice inverso de los
+ * inscriptos de cada Materia). Cada inscripción ocupa una entrada que guarda
+ * la materia y la posición del estudiante en los inscriptos de esa materia;
+ * la materia, a su vez, guarda el número de entrada junto a cada inscripto.
+ * Así desinscribir no recorre los inscriptos de la materia: alcanza con
+ * buscar la materia entre las (pocas) entradas de la libreta. Las entradas
+ * nunca se mueven (las que se liberan se reutilizan) y cuando una materia
+ * mueve a un inscripto le avisa a su libreta la nueva posición.
+ *
+ * Cerrar una materia no recorre las libretas de sus inscriptos: las entradas
+ * de materias cerradas se descartan al reconciliar la libreta, lo que
+ * SistemaSIU hace sólo cuando hubo cierres desde la última vez (`epoca`).
+ *
+ * @InvRep(Libreta l) = {
+ *                      0 <= l.tope <= |l.materias| = |l.posiciones| ^
+ *                      0 <= l.cantLibres <= l.tope ^
+ *                      ∀ e ∈ [0, l.tope). (l.materias[e] = null <=> e ∈ l.libres[0..l.cantLibres)) ^
+ *                      ∀ e ∈ [0, l.tope). l.materias[e] != null => l.materias[e] está una sola vez ^
+ *                      ninguna l.materias[e] se cerró antes de la época l.epoca
+ *                      }
+ *
+ * @Concurrencia: La libreta es su propio lock. Las entradas de una materia
+ *                sólo se agregan, mueven o quitan con el lock de esa materia
+ *                tomado, y siempre en el orden materia -> libreta.
+ */
+class Libreta {
+
+    private static final Materia[] SIN_MATERIAS = new Materia[0];
+    private static final int[] SIN_POSICIONES = new int[0];
+
+    private Materia[] materias = SIN_MATERIAS;
+    private int[] posiciones = SIN_POSICIONES;
+    private int tope = 0;
+    private int[] libres = SIN_POSICIONES;
+    private int cantLibres = 0;
+    // cantidad de cierres de materias que había en el sistema cuando se
+    // reconcilió por última vez
+    private volatile long epoca = 0;
+
+    /**
+     * Agrega la inscripción a mat, donde el estudiante ocupa la posición
+     * posicion, y devuelve el número de entrada.
+     *
+     * @Complejidad: O(1) amortizado.
+     */
+    synchronized int agregar(Materia mat, int posicion) {
+        int e;
+        if (cantLibres > 0) {
+            e = libres[--cantLibres];
+        } else {
+            if (tope == materias.length) {
+                int capacidad = Math.max(4, tope * 2);
+                materias = Arrays.copyOf(materias, capacidad);
+                posiciones = Arrays.copyOf(posiciones, capacidad);
+            }
+            e = tope++;
+        }
+        materias[e] = mat;
+        posiciones[e] = posicion;
+        return e;
+    }
+
+    /**
+     * Libera la entrada e.
+     *
+     * @Complejidad: O(1) amortizado.
+     */
+    synchronized void quitar(int e) {
+        materias[e] = null;
+        if (cantLibres == libres.length) {
+            libres = Arrays.copyOf(libres, Math.max(4, libres.length * 2));
+        }
+        libres[cantLibres++] = e;
+    }
+
+    /**
+     * Registra que en la materia de la entrada e el estudiante pasó a ocupar
+     * la posición posicion.
+     *
+     * @Complejidad: O(1).
+     */
+    synchronized void mover(int e, int posicion) {
+        posiciones[e] = posicion;
+    }
+
+    /**
+     * Devuelve la entrada de mat, o -1 si el estudiante no está inscripto.
+     *
+     * @Complejidad: O(tope), la cantidad de materias en las que se inscribió
+     *               el estudiante (acotada y chica).
+     */
+    synchronized int entrada(Materia mat) {
+        for (int e = 0; e < tope; e++) {
+            if (materias[e] == mat) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Devuelve la posición del estudiante en la materia de la entrada e.
+     *
+     * @Complejidad: O(1).
+     */
+    synchronized int posicion(int e) {
+        return posiciones[e];
+    }
+
+    /**
+     * Devuelve la época de cierres con la que se reconcilió la libreta por
+     * última vez.
+     *
+     * @Complejidad: O(1).
+     */
+    long epoca() {
+        return epoca;
+    }
+
+    /**
+     * Descarta las entradas de materias cerradas, pasa la cantidad descartada
+     * a descontar y recién entonces anota que la libreta queda al día con la
+     * época de cierres `epoca` (leída antes de llamar): quien vea esa época ya
+     * ve el contador descontado. Si la libreta ya estaba al día con esa época
+     * o una posterior no hace nada. Las entradas de una materia cerrada ya no
+     * cambian, así que alcanza con el lock de la libreta.
+     *
+     * @Complejidad: O(tope).
+     */
+    synchronized void reconciliar(long epoca, IntConsumer descontar) {
+        if (this.epoca >= epoca) {
+            return;
+        }
+        int descartadas = 0;
+        for (int e = 0; e < tope; e++) {
+            if (materias[e] != null && materias[e].estaCerrada()) {
+                quitar(e);
+                descartadas++;
+            }
+        }
+        if (descartadas > 0) {
+            descontar.accept(descartadas);
+        }
+        this.epoca = epoca;
+    }
+
+    /**
+     * Devuelve las materias en las que está inscripto el estudiante.
+     *
+     * @Complejidad: O(tope).
+     */
+    synchronized ArrayList<Materia> materias() {
+        ArrayList<Materia> res = new ArrayList<>(tope - cantLibres);
+        for (int e = 0; e < tope; e++) {
+            if (materias[e] != null) {
+                res.add(materias[e]);
+            }
+        }
+        return res;
+    }
+}
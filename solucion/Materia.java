@@ -1,6 +1,8 @@
 package aed;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.IntFunction;
 
 /**
  * Clase Materia del Sistema SIU.
@@ -8,23 +10,64 @@ import java.util.ArrayList;
  * @InvRep(Materia mat){ 
  *                       ∀ cargo in mat.docentes. cargo >= 0 &&
  *                       mat.docentes.length == 4 && mat.inscriptos != null &&
- *                       esListaEnlazada(mat.inscriptos) &&
- *                       sinRepetidos(mat.inscriptos) &&
+ *                       0 <= mat.cantInscriptos <= mat.inscriptos.length &&
+ *                       |mat.entradas| = |mat.inscriptos| &&
+ *                       sinRepetidos(mat.inscriptos[0..mat.cantInscriptos)) &&
+ *                       (∀ p ∈ [0, mat.cantInscriptos). la entrada mat.entradas[p] de la
+ *                            libreta de mat.inscriptos[p] es (mat, p)) &&
  *                       ((mat.nombresEnCarreras != null) =>
  *                            mat.nombresEnCarreras.size() > 0) &&
  *                       ((mat.nombresEnCarreras != null) => ∀ (c1,m1) in
  *                            mat.nombresEnCarreras.(∄
  *                       (c1,m2) in mat.nombresEnCarreras. c1 != c2))) &&
  *                       ((mat.nombresEnCarreras != null) =>
- *                            ∀ (c,m) in mat.nombresEnCarreras. esTrie(c) && c.esta(m))) 
+ *                            ∀ (c,m) in mat.nombresEnCarreras. esTrie(c) && (!mat.cerrada => c.esta(m)))) 
  *                     }
+ *
+ * @Concurrencia: La materia es su propio lock: todos los métodos que leen o
+ *                modifican docentes, inscriptos o el estado de cierre son
+ *                synchronized. Quien recorra iteradorAlumnos debe sostener el
+ *                lock de la materia mientras lo hace. Una materia cerrada
+ *                sigue en sus carreras hasta que SistemaSIU llama a
+ *                quitarDeCarreras, con el catálogo en modo escritura.
+ *
+ * Los inscriptos se guardan como identificadores densos de estudiante (su
+ * posición en el DiccionarioEnteros de SistemaSIU) en un arreglo de int que
+ * crece al doble: cuatro bytes por inscripción, contiguos, en lugar de un nodo
+ * de lista con una referencia a la LU. Junto a cada inscripto se guarda su
+ * número de entrada en la Libreta del estudiante, que a su vez guarda la
+ * posición del inscripto: desinscribir es O(1) moviendo el último inscripto al
+ * lugar que se libera.
+ *
+ * Con admisión por cupo (ver inscribirOEsperar), los estudiantes que no
+ * entran en el cupo esperan en una cola circular de identificadores,
+ * `espera[primeroEspera..primeroEspera + cantEspera)` (módulo su largo), sin
+ * libreta: recién al promoverlos pasan a los inscriptos y a sus libretas.
  */
 public class Materia {
 
+    private static final int[] SIN_INSCRIPTOS = new int[0];
+
     // PROF; JTP, AY1, AY2
     private final int docentes[] = { 0, 0, 0, 0 };
-    private final ListaEnlazada<String> inscriptos = new ListaEnlazada<>();
-    private ArrayList<Tupla<Trie<Materia>, String>> nombresEncarreras;
+    private int[] inscriptos = SIN_INSCRIPTOS;
+    private int[] entradas = SIN_INSCRIPTOS;
+    private int cantInscriptos = 0;
+    // lista de espera, en orden de llegada
+    private int[] espera = SIN_INSCRIPTOS;
+    private int primeroEspera = 0;
+    private int cantEspera = 0;
+    private ArrayList<Tupla<DiccionarioString<Materia>, String>> nombresEncarreras;
+    // última cota de inscriptos elevada en los tries de los alias (ver
+    // elevarCotas)
+    private int cotaPublicada = 0;
+    // volatile: las libretas la consultan sin tomar el lock de la materia
+    private volatile boolean cerrada = false;
+    // posición en MateriasExcedidas, o -1 si no excede su cupo. La escribe el
+    // heap con su lock tomado; sólo pasa de -1 a una posición (o al revés) con
+    // el lock de la materia tomado, así que con ese lock alcanza para saber si
+    // está en el heap
+    int posicionExcedidas = -1;
 
     /**
      * Crea una nueva materia.
@@ -40,27 +83,254 @@ public class Materia {
      *
      * @Complejidad: O(1). La asignación es constante.
      */
-    public void init(ArrayList<Tupla<Trie<Materia>, String>> info) {
+    public void init(ArrayList<Tupla<DiccionarioString<Materia>, String>> info) {
         nombresEncarreras = info;
     }
 
     /**
-     * Inscribe un alumno a la materia.
+     * Devuelve los alias de la materia (pares carrera, nombre).
+     *
+     * @Complejidad: O(1).
+     */
+    ArrayList<Tupla<DiccionarioString<Materia>, String>> nombresEnCarreras() {
+        return nombresEncarreras;
+    }
+
+    /**
+     * Restaura el plantel docente (por ejemplo, al cargar una instantánea).
+     *
+     * @Complejidad: O(1).
+     */
+    synchronized void restaurarDocentes(int[] plantel) {
+        System.arraycopy(plantel, 0, docentes, 0, docentes.length);
+    }
+
+    /**
+     * Reemplaza el diccionario de una carrera por otro con las mismas claves
+     * (por ejemplo, su versión congelada) en nombresEncarreras.
+     *
+     * @Complejidad: O(|nombresEncarreras|).
+     */
+    public void reemplazarCarrera(DiccionarioString<Materia> anterior, DiccionarioString<Materia> nueva) {
+        for (int i = 0; i < nombresEncarreras.size(); i++) {
+            Tupla<DiccionarioString<Materia>, String> tupla = nombresEncarreras.get(i);
+            if (tupla.fst() == anterior) {
+                nombresEncarreras.set(i, new Tupla<>(nueva, tupla.snd()));
+            }
+        }
+    }
+
+    /**
+     * Inscribe un alumno, dado por su identificador y su libreta, a la
+     * materia.
+     *
+     * @Complejidad: O(1) amortizado. Agrega el identificador al final del
+     *               arreglo y la materia a la libreta.
+     */
+    public synchronized void inscribirAlumno(int estudiante, Libreta libreta) {
+        verificarAbierta();
+        asegurarCapacidad(cantInscriptos + 1);
+        agregar(estudiante, libreta);
+    }
+
+    /**
+     * Inscribe a la materia a los estudiantes estudiantes[desde..hasta), con
+     * sus libretas en libretas[desde..hasta), tomando el lock de la materia una
+     * sola vez.
+     *
+     * @Complejidad: O(hasta - desde) amortizado. Crece el arreglo a lo sumo
+     *               una vez.
+     */
+    public synchronized void inscribirAlumnos(int[] estudiantes, Libreta[] libretas, int desde, int hasta) {
+        verificarAbierta();
+        asegurarCapacidad(cantInscriptos + hasta - desde);
+        for (int i = desde; i < hasta; i++) {
+            agregar(estudiantes[i], libretas[i]);
+        }
+    }
+
+    /**
+     * Inscribe al estudiante si hay cupo y nadie está esperando; si no, lo
+     * agrega al final de la lista de espera. Devuelve si quedó inscripto.
+     *
+     * @Complejidad: O(1) amortizado.
+     */
+    synchronized boolean inscribirOEsperar(int estudiante, Libreta libreta) {
+        verificarAbierta();
+        if (cantEspera == 0 && cantInscriptos < cupo()) {
+            asegurarCapacidad(cantInscriptos + 1);
+            agregar(estudiante, libreta);
+            return true;
+        }
+        esperar(estudiante);
+        return false;
+    }
+
+    /**
+     * Como inscribirAlumnos, pero inscribe sólo a los primeros que entran en
+     * el cupo y agrega al resto, en orden, a la lista de espera. Devuelve
+     * cuántos quedaron inscriptos: estudiantes[desde..desde + res).
+     *
+     * @Complejidad: O(hasta - desde) amortizado.
+     */
+    synchronized int inscribirOEsperar(int[] estudiantes, Libreta[] libretas, int desde, int hasta) {
+        verificarAbierta();
+        int admitidos = cantEspera == 0 ? Math.max(0, Math.min(hasta - desde, cupo() - cantInscriptos)) : 0;
+        asegurarCapacidad(cantInscriptos + admitidos);
+        for (int i = desde; i < desde + admitidos; i++) {
+            agregar(estudiantes[i], libretas[i]);
+        }
+        for (int i = desde + admitidos; i < hasta; i++) {
+            esperar(estudiantes[i]);
+        }
+        return admitidos;
+    }
+
+    /**
+     * Agrega al estudiante al final de la lista de espera, sin verificar el
+     * cupo (por ejemplo, al cargar una instantánea).
+     *
+     * @Complejidad: O(1) amortizado.
+     */
+    synchronized void esperar(int estudiante) {
+        if (cantEspera == espera.length) {
+            int[] nueva = new int[Math.max(4, espera.length * 2)];
+            for (int i = 0; i < cantEspera; i++) {
+                nueva[i] = espera[(primeroEspera + i) % espera.length];
+            }
+            espera = nueva;
+            primeroEspera = 0;
+        }
+        espera[(primeroEspera + cantEspera) % espera.length] = estudiante;
+        cantEspera++;
+    }
+
+    /**
+     * Inscribe, en orden de llegada, a todos los estudiantes de la lista de
+     * espera que entran en el cupo, creciendo los inscriptos una sola vez.
+     * Devuelve sus identificadores (vacío si no entra ninguno), para que
+     * quien la llame actualice sus contadores con el lock de la materia
+     * todavía tomado. libretas da la libreta de cada identificador.
+     *
+     * @Complejidad: O(p) amortizado, con p la cantidad de promovidos.
+     */
+    synchronized int[] promover(IntFunction<Libreta> libretas) {
+        int promovidos = Math.max(0, Math.min(cantEspera, cupo() - cantInscriptos));
+        if (promovidos == 0 || cerrada) {
+            return SIN_INSCRIPTOS;
+        }
+        int[] res = new int[promovidos];
+        asegurarCapacidad(cantInscriptos + promovidos);
+        for (int i = 0; i < promovidos; i++) {
+            res[i] = espera[primeroEspera];
+            primeroEspera = (primeroEspera + 1) % espera.length;
+            agregar(res[i], libretas.apply(res[i]));
+        }
+        cantEspera -= promovidos;
+        return res;
+    }
+
+    /**
+     * Devuelve la cantidad de estudiantes en la lista de espera.
+     *
+     * @Complejidad: O(1).
+     */
+    public synchronized int cantidadEnEspera() {
+        return cantEspera;
+    }
+
+    private void agregar(int estudiante, Libreta libreta) {
+        inscriptos[cantInscriptos] = estudiante;
+        entradas[cantInscriptos] = libreta.agregar(this, cantInscriptos);
+        cantInscriptos++;
+    }
+
+    private void asegurarCapacidad(int n) {
+        if (n > inscriptos.length) {
+            int capacidad = Math.max(n, Math.max(4, inscriptos.length * 2));
+            inscriptos = Arrays.copyOf(inscriptos, capacidad);
+            entradas = Arrays.copyOf(entradas, capacidad);
+        }
+    }
+
+    /**
+     * Desinscribe de la materia al estudiante de la libreta dada. El último
+     * inscripto pasa a ocupar su lugar, y se actualiza su libreta (que se
+     * obtiene con libretas a partir de su identificador). Lanza
+     * IllegalArgumentException si el estudiante no está inscripto.
      *
-     * @Complejidad: O(1). Agrega el alumno al final de la lista enlazada.
+     * @Complejidad: O(materias del estudiante) para encontrar su entrada en la
+     *               libreta; quitarlo de los inscriptos es O(1).
      */
-    public void inscribirAlumno(String lu) {
-        inscriptos.agregarAtras(lu);
+    synchronized void desinscribirAlumno(Libreta libreta, IntFunction<Libreta> libretas) {
+        verificarAbierta();
+        int e = libreta.entrada(this);
+        if (e < 0) {
+            throw new IllegalArgumentException("El estudiante no está inscripto en la materia");
+        }
+        int p = libreta.posicion(e);
+        libreta.quitar(e);
+        int ultimo = --cantInscriptos;
+        if (p != ultimo) {
+            inscriptos[p] = inscriptos[ultimo];
+            entradas[p] = entradas[ultimo];
+            libretas.apply(inscriptos[p]).mover(entradas[p], p);
+        }
     }
 
     /**
      * Devuelve la cantidad de inscriptos en la materia.
      *
      * @Complejidad: O(1).
-     * @see ListaEnlazada#longitud
      */
-    public int cantidadInscriptos() {
-        return inscriptos.longitud();
+    public synchronized int cantidadInscriptos() {
+        return cantInscriptos;
+    }
+
+    /**
+     * Eleva, en cada carrera en la que está la materia, la cota de inscriptos
+     * del camino de su nombre para que acote la cantidad actual de inscriptos.
+     * Así las búsquedas de las materias con más inscriptos no necesitan
+     * recorrer los tries. Quien la llame debe impedir que se borren claves de
+     * esas carreras mientras tanto (lock del catálogo).
+     *
+     * La cota se publica redondeada a la siguiente potencia de dos y los tries
+     * sólo se recorren cuando la cantidad de inscriptos la supera; como las
+     * cotas son cotas superiores, pasarse sólo hace que `mejores` explore algo
+     * más. Con recorrer = true los recorre igual, con la cota ya publicada (por
+     * ejemplo, para repetir un recorrido que un congelamiento concurrente pudo
+     * dejar a medias).
+     *
+     * @Complejidad: O(1) si la cantidad de inscriptos no supera la cota
+     *               publicada; si no, O(Σ|Nm|). Como la cota se duplica en
+     *               cada recorrido, n inscripciones recorren los tries
+     *               O(log n) veces.
+     *
+     * @see DiccionarioString#elevarCota
+     */
+    synchronized void elevarCotas(boolean recorrer) {
+        if (cantInscriptos > cotaPublicada) {
+            cotaPublicada = redondearCota(cantInscriptos);
+        } else if (!recorrer) {
+            return;
+        }
+        for (Tupla<DiccionarioString<Materia>, String> tupla : nombresEncarreras) {
+            tupla.fst().elevarCota(tupla.snd(), cotaPublicada);
+        }
+    }
+
+    /**
+     * Devuelve la menor potencia de dos que es mayor o igual a cantidad, o
+     * Integer.MAX_VALUE si no entra en un int.
+     *
+     * @Complejidad: O(1).
+     */
+    private static int redondearCota(int cantidad) {
+        int potencia = Integer.highestOneBit(cantidad);
+        if (potencia == cantidad) {
+            return cantidad;
+        }
+        return potencia == 1 << 30 ? Integer.MAX_VALUE : potencia << 1;
     }
 
     /**
@@ -68,17 +338,19 @@ public class Materia {
      *
      * @Complejidad: O(1). Aumenta el contador del cargo correspondiente en el arreglo `docentes`.
      */
-    public void agregarDocente(SistemaSIU.CargoDocente cargo) {
+    public synchronized void agregarDocente(SistemaSIU.CargoDocente cargo) {
+        verificarAbierta();
         docentes[3 - cargo.ordinal()] += 1;
     }
 
     /**
      * Devuelve el plantel docente.
      *
-     * @Complejidad: O(1). Devuelve el arreglo docentes.
+     * @Complejidad: O(1). Devuelve una copia del arreglo docentes (de largo 4),
+     *               para que no cambie si otro hilo agrega un docente.
      */
-    public int[] plantelDocente() {
-        return docentes;
+    public synchronized int[] plantelDocente() {
+        return docentes.clone();
     }
 
     /**
@@ -86,7 +358,7 @@ public class Materia {
      *
      * @Complejidad: O(1).
      */
-    public int cupo() {
+    public synchronized int cupo() {
         return Math.min(
                 docentes[0] * 250,
                 Math.min(
@@ -101,32 +373,118 @@ public class Materia {
      *
      * @Complejidad: O(1). Compara la cantidad de inscriptos con el cupo.
      */
-    public boolean excedeCupo() {
+    public synchronized boolean excedeCupo() {
         return this.cantidadInscriptos() > this.cupo();
     }
 
     /**
-     * Cierra la materia de todas las carreras en las que se encuentra.
+     * Devuelve cuánto excede la cantidad de inscriptos al cupo (negativo si no
+     * lo excede).
+     *
+     * @Complejidad: O(1).
+     */
+    synchronized int exceso() {
+        return cantInscriptos - cupo();
+    }
+
+    /**
+     * Cierra la materia: desde ahora no admite inscripciones ni docentes. Lanza
+     * IllegalStateException si ya estaba cerrada. Después hay que quitarla de
+     * sus carreras con quitarDeCarreras. Las libretas de sus inscriptos no se
+     * tocan: cada una descarta la materia la próxima vez que se reconcilia.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see Libreta#reconciliar
+     */
+    public synchronized void cerrarMateria() {
+        verificarAbierta();
+        cerrada = true;
+    }
+
+    /**
+     * Borra la materia de todas las carreras en las que se encuentra. No toma
+     * el lock de la materia: quien la llame debe tener el catálogo en modo
+     * escritura, que es lo único que protege a los tries y a los alias.
      *
      * @Complejidad: O(Σ|Nm|). Recorre todas las tuplas y borra la materia de cada
      *               trie (cada operación de borrar es O(|Nm|)).
      *
      * @see Trie#borrar
      */
-    public void cerrarMateria() {
-        for (Tupla<Trie<Materia>, String> tuplaCarrera : nombresEncarreras) {
-            Trie<Materia> carrera = tuplaCarrera.fst();
+    void quitarDeCarreras() {
+        for (Tupla<DiccionarioString<Materia>, String> tuplaCarrera : nombresEncarreras) {
+            DiccionarioString<Materia> carrera = tuplaCarrera.fst();
             String nombreMateria = tuplaCarrera.snd();
             carrera.borrar(nombreMateria); // O(|Nm|)
         }
     }
 
     /**
-     * Retorna un iterador para los alumnos inscriptos.
+     * Devuelve si la materia fue cerrada. No toma el lock de la materia, así
+     * que puede llamarse con una libreta tomada.
+     *
+     * @Complejidad: O(1).
+     */
+    public boolean estaCerrada() {
+        return cerrada;
+    }
+
+    /**
+     * Lanza IllegalStateException si la materia ya fue cerrada (por ejemplo,
+     * si otro hilo la cerró entre la búsqueda y la operación).
+     */
+    private void verificarAbierta() {
+        if (cerrada) {
+            throw new IllegalStateException("La materia está cerrada");
+        }
+    }
+
+    /**
+     * Retorna un iterador sobre los identificadores de la lista de espera, en
+     * orden de llegada. Como con iteradorAlumnos, hay que sostener el lock de
+     * la materia mientras se lo recorre.
      *
-     * @Complejidad: O(1). Retorna un iterador sobre la lista enlazada.
+     * @Complejidad: O(1).
      */
-    public Iterador<String> iteradorAlumnos() {
-        return inscriptos.iterador();
+    IteradorEnteros iteradorEspera() {
+        return new IteradorEnteros() {
+            private int i = 0;
+
+            @Override
+            public boolean haySiguiente() {
+                return i < cantEspera;
+            }
+
+            @Override
+            public int siguiente() {
+                return espera[(primeroEspera + i++) % espera.length];
+            }
+        };
+    }
+
+    /**
+     * Retorna un iterador sobre los identificadores de los alumnos inscriptos,
+     * en un orden arbitrario: desinscribirAlumno mueve al último inscripto al
+     * lugar que queda libre. El i-ésimo que devuelve es el de la posición i
+     * (ver Libreta#posicion).
+     *
+     * @Complejidad: O(1). Recorre el arreglo en orden, sin crear objetos por
+     *               elemento.
+     */
+    public IteradorEnteros iteradorAlumnos() {
+        return new IteradorEnteros() {
+            private int i = 0;
+
+            @Override
+            public boolean haySiguiente() {
+                return i < cantInscriptos;
+            }
+
+            @Override
+            public int siguiente() {
+                return inscriptos[i++];
+            }
+        };
     }
 }
@@ -0,0 +1,197 @@
+package aed;
+
+import java.util.Arrays;
+
+/**
+ * Materias que exceden su cupo, en un heap de máximo indexado por el exceso
+ * (inscriptos - cupo). Cada materia guarda su posición en el heap
+ * (Materia#posicionExcedidas), así que actualizar el exceso de una materia o
+ * quitarla no la busca: la mueve desde su lugar. Sólo están las materias con
+ * exceso positivo; las que no exceden su cupo no ocupan lugar.
+ *
+ * El heap guarda el exceso de cada materia junto a ella, para comparar sin
+ * consultar a las materias (y sin tomar sus locks).
+ *
+ * @InvRep(MateriasExcedidas h) = {
+ *                              0 <= h.tamaño <= |h.materias| = |h.excesos| ^
+ *                              ∀ i ∈ [0, h.tamaño). h.materias[i].posicionExcedidas = i ^
+ *                              h.excesos[i] > 0 ^
+ *                              ∀ i ∈ [1, h.tamaño). h.excesos[(i - 1) / 2] >= h.excesos[i]
+ *                              }
+ *
+ * @Concurrencia: El heap es su propio lock. SistemaSIU lo actualiza con el
+ *                lock de la materia tomado, así que se toma siempre en el
+ *                orden materia -> heap, y la materia entra o sale del heap
+ *                sólo con su lock tomado.
+ */
+final class MateriasExcedidas {
+
+    private static final Materia[] SIN_MATERIAS = new Materia[0];
+
+    private Materia[] materias = new Materia[16];
+    private int[] excesos = new int[16];
+    private int tamaño = 0;
+
+    /**
+     * Registra que el exceso de mat pasó a ser exceso: la agrega si no estaba
+     * y excede su cupo, la mueve si ya estaba, o la quita si dejó de
+     * excederlo.
+     *
+     * @Complejidad: O(log n), con n la cantidad de materias excedidas.
+     */
+    synchronized void actualizar(Materia mat, int exceso) {
+        int i = mat.posicionExcedidas;
+        if (i < 0) {
+            if (exceso > 0) {
+                agregar(mat, exceso);
+            }
+        } else if (exceso <= 0) {
+            quitarEn(i);
+        } else {
+            int anterior = excesos[i];
+            excesos[i] = exceso;
+            if (exceso > anterior) {
+                subir(i);
+            } else {
+                bajar(i);
+            }
+        }
+    }
+
+    /**
+     * Quita a mat, si estaba.
+     *
+     * @Complejidad: O(log n).
+     */
+    synchronized void quitar(Materia mat) {
+        if (mat.posicionExcedidas >= 0) {
+            quitarEn(mat.posicionExcedidas);
+        }
+    }
+
+    /**
+     * Devuelve la cantidad de materias excedidas.
+     *
+     * @Complejidad: O(1).
+     */
+    synchronized int size() {
+        return tamaño;
+    }
+
+    /**
+     * Devuelve las (a lo sumo) k materias de mayor exceso, de mayor a menor.
+     * Recorre el heap desde la raíz con una frontera auxiliar (otro heap, de
+     * posiciones del primero): cada posición que sale de la frontera es la
+     * siguiente de mayor exceso, y sólo entonces se agregan sus hijos.
+     *
+     * @Complejidad: O(k log k). No depende de la cantidad de materias
+     *               excedidas.
+     */
+    synchronized Materia[] mayores(int k) {
+        int cantidad = Math.max(0, Math.min(k, tamaño));
+        if (cantidad == 0) {
+            return SIN_MATERIAS;
+        }
+        Materia[] res = new Materia[cantidad];
+        // la frontera tiene a lo sumo una posición más por cada una que sale
+        int[] frontera = new int[cantidad + 1];
+        int enFrontera = 0;
+        frontera[enFrontera++] = 0;
+        for (int r = 0; r < cantidad; r++) {
+            int i = frontera[0];
+            frontera[0] = frontera[--enFrontera];
+            bajarFrontera(frontera, enFrontera, 0);
+            res[r] = materias[i];
+            for (int hijo = 2 * i + 1; hijo <= 2 * i + 2 && hijo < tamaño; hijo++) {
+                frontera[enFrontera] = hijo;
+                subirFrontera(frontera, enFrontera++);
+            }
+        }
+        return res;
+    }
+
+    private void subirFrontera(int[] frontera, int i) {
+        while (i > 0 && excesos[frontera[(i - 1) / 2]] < excesos[frontera[i]]) {
+            intercambiar(frontera, i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void bajarFrontera(int[] frontera, int n, int i) {
+        while (2 * i + 1 < n) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < n && excesos[frontera[hijo + 1]] > excesos[frontera[hijo]]) {
+                hijo++;
+            }
+            if (excesos[frontera[i]] >= excesos[frontera[hijo]]) {
+                return;
+            }
+            intercambiar(frontera, i, hijo);
+            i = hijo;
+        }
+    }
+
+    private static void intercambiar(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private void agregar(Materia mat, int exceso) {
+        if (tamaño == materias.length) {
+            materias = Arrays.copyOf(materias, tamaño * 2);
+            excesos = Arrays.copyOf(excesos, tamaño * 2);
+        }
+        ubicar(tamaño, mat, exceso);
+        subir(tamaño++);
+    }
+
+    private void quitarEn(int i) {
+        materias[i].posicionExcedidas = -1;
+        int ultimo = --tamaño;
+        if (i != ultimo) {
+            int anterior = excesos[i];
+            ubicar(i, materias[ultimo], excesos[ultimo]);
+            if (excesos[i] > anterior) {
+                subir(i);
+            } else {
+                bajar(i);
+            }
+        }
+        materias[ultimo] = null;
+    }
+
+    private void subir(int i) {
+        Materia mat = materias[i];
+        int exceso = excesos[i];
+        while (i > 0 && excesos[(i - 1) / 2] < exceso) {
+            int padre = (i - 1) / 2;
+            ubicar(i, materias[padre], excesos[padre]);
+            i = padre;
+        }
+        ubicar(i, mat, exceso);
+    }
+
+    private void bajar(int i) {
+        Materia mat = materias[i];
+        int exceso = excesos[i];
+        while (2 * i + 1 < tamaño) {
+            int hijo = 2 * i + 1;
+            if (hijo + 1 < tamaño && excesos[hijo + 1] > excesos[hijo]) {
+                hijo++;
+            }
+            if (exceso >= excesos[hijo]) {
+                break;
+            }
+            ubicar(i, materias[hijo], excesos[hijo]);
+            i = hijo;
+        }
+        ubicar(i, mat, exceso);
+    }
+
+    private void ubicar(int i, Materia mat, int exceso) {
+        materias[i] = mat;
+        excesos[i] = exceso;
+        mat.posicionExcedidas = i;
+    }
+}
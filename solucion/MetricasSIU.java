@@ -0,0 +1,258 @@
+package aed;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Métricas de un SistemaSIU: un Histograma de latencias por operación
+ * pública, que cuenta además las llamadas, y contadores del estado (nodos de
+ * los índices y total de inscriptos) que no recorren el catálogo en cada
+ * consulta.
+ *
+ * Cada llamada se cuenta. Cada modificación, además, mide su duración con
+ * dos lecturas de System.nanoTime y la registra al terminar, también si
+ * termina con una excepción. Las consultas, que pueden durar apenas unas
+ * pocas lecturas del reloj, miden su latencia por muestreo (una de cada
+ * MUESTREO_POR_DEFECTO, configurable): las demás sólo pagan el incremento
+ * del contador. Contar y registrar no reservan memoria ni toman locks. Con
+ * las métricas desactivadas cada operación paga sólo una lectura de un
+ * campo volatile.
+ *
+ * exportar las publica como MBeans en el servidor de la plataforma:
+ * aed:type=SistemaSIU,name=nombre para los contadores y
+ * aed:type=SistemaSIU,name=nombre,operacion=op para cada operación.
+ */
+public final class MetricasSIU implements MetricasSIUMBean {
+
+    public enum Operacion {
+        INSCRIBIR(false),
+        INSCRIBIR_LOTE(false),
+        DESINSCRIBIR(false),
+        AGREGAR_DOCENTE(false),
+        PLANTEL_DOCENTE(true),
+        CERRAR_MATERIA(false),
+        INSCRIPTOS(true),
+        EXCEDE_CUPO(true),
+        CARRERAS(true),
+        MATERIAS(true),
+        CARRERAS_CON_PREFIJO(true),
+        MATERIAS_CON_PREFIJO(true),
+        MATERIAS_MAS_INSCRIPTAS(true),
+        MATERIAS_DE(true),
+        MATERIAS_INSCRIPTAS(true),
+        RESOLVER(true),
+        MATERIAS_EXCEDIDAS(true),
+        EN_ESPERA(true);
+
+        // las consultas miden su latencia por muestreo
+        final boolean consulta;
+
+        Operacion(boolean consulta) {
+            this.consulta = consulta;
+        }
+    }
+
+    private static final Operacion[] OPERACIONES = Operacion.values();
+    static final int MUESTREO_POR_DEFECTO = 16;
+
+    private final SistemaSIU siu;
+    private final Histograma[] histogramas = new Histograma[OPERACIONES.length];
+    private volatile boolean activas = true;
+    // una de cada `muestreo` consultas mide su latencia; potencia de 2
+    private volatile int muestreo = MUESTREO_POR_DEFECTO;
+    private ObjectName[] exportados = null;
+
+    MetricasSIU(SistemaSIU siu) {
+        this.siu = siu;
+        for (int i = 0; i < histogramas.length; i++) {
+            histogramas[i] = new Histograma();
+        }
+    }
+
+    /**
+     * Cuenta una llamada a op y devuelve su instante de inicio, o 0 si no hay
+     * que medir su latencia: si las métricas están desactivadas o si op es una
+     * consulta que no salió en el muestreo. La muestra se elige con
+     * ThreadLocalRandom, sin estado compartido entre hilos.
+     *
+     * @Complejidad: O(1).
+     */
+    long iniciar(Operacion op) {
+        if (!activas) {
+            return 0;
+        }
+        histogramas[op.ordinal()].contar(1);
+        if (op.consulta && (ThreadLocalRandom.current().nextInt() & (muestreo - 1)) != 0) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Registra la latencia de una llamada a op que empezó en inicio (devuelto
+     * por iniciar), si se midió.
+     *
+     * @Complejidad: O(1).
+     */
+    void registrar(Operacion op, long inicio) {
+        if (inicio != 0) {
+            histogramas[op.ordinal()].registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Devuelve la cantidad de llamadas a op, medidas o no.
+     *
+     * @Complejidad: O(1).
+     */
+    public long cantidad(Operacion op) {
+        return histogramas[op.ordinal()].getCantidad();
+    }
+
+    /**
+     * Devuelve, en nanosegundos, la latencia que no supera la fracción q de
+     * las llamadas medidas de op (con un error relativo menor a 6,25%).
+     *
+     * requiere {0 <= q <= 1}
+     *
+     * @Complejidad: O(1). Recorre las cubetas del histograma, que son una
+     *               cantidad fija.
+     *
+     * @see Histograma#percentil
+     */
+    public long percentil(Operacion op, double q) {
+        return histogramas[op.ordinal()].percentil(q);
+    }
+
+    @Override
+    public boolean isActivas() {
+        return activas;
+    }
+
+    @Override
+    public void setActivas(boolean activas) {
+        this.activas = activas;
+    }
+
+    @Override
+    public int getMuestreoConsultas() {
+        return muestreo;
+    }
+
+    /**
+     * Mide la latencia de una de cada `muestreo` consultas (1 las mide
+     * todas). Las modificaciones se miden siempre: duran mucho más que las dos
+     * lecturas del reloj.
+     *
+     * requiere {muestreo es una potencia de 2 positiva}
+     *
+     * @Complejidad: O(1).
+     */
+    @Override
+    public void setMuestreoConsultas(int muestreo) {
+        if (muestreo <= 0 || Integer.bitCount(muestreo) != 1) {
+            throw new IllegalArgumentException("El muestreo debe ser una potencia de 2: " + muestreo);
+        }
+        this.muestreo = muestreo;
+    }
+
+    /**
+     * @Complejidad: O(Σ|lu|) si el índice de estudiantes es un trie, O(1) si
+     *               no.
+     *
+     * @see DiccionarioString#nodos
+     */
+    @Override
+    public long getNodosEstudiantes() {
+        return siu.materiasEstudiante().nodos();
+    }
+
+    /**
+     * @Complejidad: O(1) si el catálogo no cambió desde la última lectura; si
+     *               no, O(Σ|c|).
+     */
+    @Override
+    public long getNodosCarreras() {
+        return siu.nodosCarreras();
+    }
+
+    /**
+     * Nodos de los diccionarios de materias de todas las carreras.
+     *
+     * @Complejidad: O(1) si el catálogo no cambió desde la última lectura; si
+     *               no, O(Σ|c| + Σ|m|).
+     */
+    @Override
+    public long getNodosMaterias() {
+        return siu.nodosMaterias();
+    }
+
+    /**
+     * Suma de los inscriptos de todas las materias abiertas.
+     *
+     * @Complejidad: O(1) (sin contar los hilos que inscribieron).
+     */
+    @Override
+    public long getTotalInscriptos() {
+        return siu.totalInscriptos();
+    }
+
+    /**
+     * Vuelve a cero los histogramas de todas las operaciones.
+     *
+     * @Complejidad: O(cantidad de operaciones).
+     */
+    @Override
+    public void reiniciar() {
+        for (Histograma h : histogramas) {
+            h.reiniciar();
+        }
+    }
+
+    /**
+     * Publica las métricas en el servidor MBean de la plataforma con el
+     * nombre dado, que debe ser distinto para cada SistemaSIU del proceso. Si
+     * ya estaban publicadas, primero las retira.
+     *
+     * @Complejidad: O(cantidad de operaciones).
+     */
+    public synchronized void exportar(String nombre) throws JMException {
+        retirar();
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        String base = "aed:type=SistemaSIU,name=" + ObjectName.quote(nombre);
+        ObjectName[] nombres = new ObjectName[OPERACIONES.length + 1];
+        // antes de registrar, para que retirar limpie si alguno falla
+        exportados = nombres;
+        nombres[0] = new ObjectName(base);
+        servidor.registerMBean(new StandardMBean(this, MetricasSIUMBean.class), nombres[0]);
+        for (Operacion op : OPERACIONES) {
+            ObjectName n = new ObjectName(base + ",operacion=" + op.name().toLowerCase());
+            servidor.registerMBean(new StandardMBean(histogramas[op.ordinal()], HistogramaMBean.class), n);
+            nombres[op.ordinal() + 1] = n;
+        }
+    }
+
+    /**
+     * Retira del servidor MBean las métricas publicadas con exportar, si las
+     * hay.
+     *
+     * @Complejidad: O(cantidad de operaciones).
+     */
+    public synchronized void retirar() throws JMException {
+        if (exportados == null) {
+            return;
+        }
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName n : exportados) {
+            if (n != null && servidor.isRegistered(n)) {
+                servidor.unregisterMBean(n);
+            }
+        }
+        exportados = null;
+    }
+}
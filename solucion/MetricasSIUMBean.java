@@ -0,0 +1,29 @@
+package aed;
+
+/**
+ * Vista JMX de las métricas generales de un SistemaSIU. Los nodos se calculan
+ * al leerlos sólo si el catálogo cambió desde la última lectura; el total de
+ * inscriptos se mantiene al inscribir.
+ *
+ * @see MetricasSIU#exportar
+ */
+public interface MetricasSIUMBean {
+
+    boolean isActivas();
+
+    void setActivas(boolean activas);
+
+    int getMuestreoConsultas();
+
+    void setMuestreoConsultas(int muestreo);
+
+    long getNodosEstudiantes();
+
+    long getNodosCarreras();
+
+    long getNodosMaterias();
+
+    long getTotalInscriptos();
+
+    void reiniciar();
+}
@@ -0,0 +1,51 @@
+package aed;
+
+/**
+ * Materia ya encontrada en el catálogo de un SistemaSIU (ver
+ * SistemaSIU#resolver). Las operaciones que reciben una referencia van
+ * directo a la materia, sin recorrer los diccionarios de carreras y de
+ * materias para buscarla. Tampoco los recorre inscribir para elevar las
+ * cotas de inscriptos, salvo cuando la materia supera la última cota que
+ * publicó (ver Materia#elevarCotas).
+ *
+ * La referencia sigue valiendo después de congelar el catálogo. Cuando la
+ * materia se cierra, estaCerrada pasa a devolver true y las operaciones con
+ * la referencia lanzan IllegalStateException.
+ */
+public final class ReferenciaMateria {
+
+    final SistemaSIU sistema;
+    final Materia materia;
+    private final String carrera;
+    private final String nombreMateria;
+
+    ReferenciaMateria(SistemaSIU sistema, Materia materia, String carrera, String nombreMateria) {
+        this.sistema = sistema;
+        this.materia = materia;
+        this.carrera = carrera;
+        this.nombreMateria = nombreMateria;
+    }
+
+    /**
+     * Devuelve la carrera con la que se resolvió la materia.
+     */
+    public String getCarrera() {
+        return carrera;
+    }
+
+    /**
+     * Devuelve el nombre con el que se resolvió la materia en su carrera.
+     */
+    public String getNombreMateria() {
+        return nombreMateria;
+    }
+
+    /**
+     * Devuelve si la materia se cerró.
+     *
+     * @Complejidad: O(1).
+     */
+    public boolean estaCerrada() {
+        return materia.estaCerrada();
+    }
+}
@@ -0,0 +1,431 @@
+package aed;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de operaciones (write-ahead log) de un SistemaSIU: guarda en un
+ * archivo, sólo agregando al final, cada inscribir, desinscribir,
+ * agregarDocente, cerrarMateria y admitirPorCupo, para poder reconstruir el
+ * estado después de una caída.
+ *
+ * Las operaciones se acumulan en memoria y un hilo escritor las baja al
+ * archivo en grupos: espera `ventana` nanosegundos para juntar operaciones,
+ * escribe el grupo entero y hace un único fsync. Quien registra una operación
+ * recibe un número de secuencia y con `esperar` se bloquea hasta que esa
+ * operación sea durable, así que muchas operaciones concurrentes comparten
+ * cada fsync.
+ *
+ * Formato: una secuencia de registros, cada uno un byte de tipo seguido de
+ * enteros codificados como varint (7 bits por byte). Cada (carrera, materia)
+ * y cada LU se escriben completos sólo la primera vez, en un registro de
+ * definición que les asigna un id; las operaciones usan esos ids.
+ * <pre>
+ * DEFINIR_MATERIA   id carrera nombre
+ * DEFINIR_ESTUDIANTE id lu
+ * INSCRIBIR         idEstudiante idMateria
+ * AGREGAR_DOCENTE   cargo idMateria
+ * CERRAR_MATERIA    idMateria
+ * DESINSCRIBIR      idEstudiante idMateria
+ * ADMITIR_POR_CUPO  activa                (un byte, 0 o 1)
+ * </pre>
+ * (un String es su largo en bytes como varint seguido de sus bytes UTF-8).
+ */
+public class RegistroOperaciones implements AutoCloseable {
+
+    private static final byte DEFINIR_MATERIA = 1;
+    private static final byte DEFINIR_ESTUDIANTE = 2;
+    private static final byte INSCRIBIR = 3;
+    private static final byte AGREGAR_DOCENTE = 4;
+    private static final byte CERRAR_MATERIA = 5;
+    private static final byte DESINSCRIBIR = 6;
+    private static final byte ADMITIR_POR_CUPO = 7;
+
+    // separa carrera y materia en la clave de materias
+    private static final char SEPARADOR = '\0';
+
+    private final FileChannel canal;
+    private final long ventana;
+    private final Thread escritor;
+
+    // Todo lo que sigue está protegido por el lock del registro.
+    private final Trie<Integer> materias = new Trie<>();
+    private final Trie<Integer> estudiantes = new Trie<>();
+    private ByteBuffer pendientes = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer libre = ByteBuffer.allocate(1 << 16);
+    private long registradas = 0;
+    private long durables = 0;
+    private boolean cerrado = false;
+    private boolean terminado = false;
+    private boolean escritorEsperando = false;
+    private IOException error = null;
+
+    /**
+     * Crea el registro en archivo, que no debe existir o estar vacío: los ids
+     * de materias y estudiantes empiezan de nuevo con cada registro. Al
+     * arrancar, el registro anterior se aplica con reproducir, se guarda una
+     * instantánea y recién entonces se abre un registro nuevo.
+     *
+     * @param ventana nanosegundos que el escritor espera para juntar
+     *                operaciones antes de cada fsync; 0 escribe apenas hay
+     *                algo pendiente.
+     */
+    public RegistroOperaciones(Path archivo, long ventana) throws IOException {
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (canal.size() > 0) {
+            canal.close();
+            throw new IOException("El registro ya tiene operaciones: " + archivo);
+        }
+        this.ventana = ventana;
+        this.escritor = new Thread(this::escribirGrupos, "registro-operaciones");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Registra una inscripción y devuelve su número de secuencia. Éste y los
+     * demás métodos que registran lanzan IllegalStateException si el
+     * registro ya se cerró.
+     *
+     * @Complejidad: O(|c| + |m| + |lu|) amortizado.
+     */
+    public synchronized long inscribir(String estudiante, String carrera, String materia) {
+        verificarAbierto();
+        int idEstudiante = idEstudiante(estudiante);
+        int idMateria = idMateria(carrera, materia);
+        reservar(1 + 5 + 5);
+        pendientes.put(INSCRIBIR);
+        escribirVarint(idEstudiante);
+        escribirVarint(idMateria);
+        return confirmar();
+    }
+
+    /**
+     * Registra una baja de inscripción y devuelve su número de secuencia.
+     *
+     * @Complejidad: O(|c| + |m| + |lu|) amortizado.
+     */
+    public synchronized long desinscribir(String estudiante, String carrera, String materia) {
+        verificarAbierto();
+        int idEstudiante = idEstudiante(estudiante);
+        int idMateria = idMateria(carrera, materia);
+        reservar(1 + 5 + 5);
+        pendientes.put(DESINSCRIBIR);
+        escribirVarint(idEstudiante);
+        escribirVarint(idMateria);
+        return confirmar();
+    }
+
+    /**
+     * Registra el alta de un docente y devuelve su número de secuencia.
+     *
+     * @Complejidad: O(|c| + |m|) amortizado.
+     */
+    public synchronized long agregarDocente(SistemaSIU.CargoDocente cargo, String carrera, String materia) {
+        verificarAbierto();
+        int idMateria = idMateria(carrera, materia);
+        reservar(1 + 1 + 5);
+        pendientes.put(AGREGAR_DOCENTE);
+        pendientes.put((byte) cargo.ordinal());
+        escribirVarint(idMateria);
+        return confirmar();
+    }
+
+    /**
+     * Registra el cierre de una materia y devuelve su número de secuencia.
+     *
+     * @Complejidad: O(|c| + |m|) amortizado.
+     */
+    public synchronized long cerrarMateria(String carrera, String materia) {
+        verificarAbierto();
+        int idMateria = idMateria(carrera, materia);
+        reservar(1 + 5);
+        pendientes.put(CERRAR_MATERIA);
+        escribirVarint(idMateria);
+        return confirmar();
+    }
+
+    /**
+     * Registra un cambio de la admisión por cupo y devuelve su número de
+     * secuencia.
+     *
+     * @Complejidad: O(1) amortizado.
+     */
+    public synchronized long admitirPorCupo(boolean activa) {
+        verificarAbierto();
+        reservar(1 + 1);
+        pendientes.put(ADMITIR_POR_CUPO);
+        pendientes.put((byte) (activa ? 1 : 0));
+        return confirmar();
+    }
+
+    /**
+     * Bloquea hasta que la operación con número de secuencia `secuencia` esté
+     * en disco. Lanza UncheckedIOException si el escritor falló, e
+     * IllegalStateException si el registro se cerró sin que la operación
+     * llegara al disco.
+     */
+    public synchronized void esperar(long secuencia) {
+        boolean interrumpido = false;
+        while (durables < secuencia && error == null && !terminado) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+        if (durables < secuencia) {
+            if (error != null) {
+                throw new UncheckedIOException(error);
+            }
+            throw new IllegalStateException("El registro de operaciones está cerrado");
+        }
+    }
+
+    /**
+     * Baja al disco lo pendiente y cierra el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            cerrado = true;
+            notifyAll();
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+        synchronized (this) {
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Lanza IllegalStateException si el registro ya se cerró. SistemaSIU la
+     * llama antes de modificar su estado, para no cambiar nada que después no
+     * pueda registrar.
+     *
+     * @Complejidad: O(1).
+     */
+    synchronized void verificarAbierto() {
+        if (cerrado) {
+            throw new IllegalStateException("El registro de operaciones está cerrado");
+        }
+    }
+
+    /**
+     * Cuenta la operación recién escrita en `pendientes` y despierta al
+     * escritor si estaba esperando operaciones.
+     */
+    private long confirmar() {
+        registradas++;
+        if (escritorEsperando) {
+            notifyAll();
+        }
+        return registradas;
+    }
+
+    private int idMateria(String carrera, String materia) {
+        String clave = carrera + SEPARADOR + materia;
+        Integer id = materias.buscar(clave);
+        if (id == null) {
+            id = materias.size();
+            materias.definir(clave, id);
+            byte[] c = carrera.getBytes(StandardCharsets.UTF_8);
+            byte[] m = materia.getBytes(StandardCharsets.UTF_8);
+            reservar(1 + 5 + 5 + c.length + 5 + m.length);
+            pendientes.put(DEFINIR_MATERIA);
+            escribirVarint(id);
+            escribirBytes(c);
+            escribirBytes(m);
+        }
+        return id;
+    }
+
+    private int idEstudiante(String lu) {
+        Integer id = estudiantes.buscar(lu);
+        if (id == null) {
+            id = estudiantes.size();
+            estudiantes.definir(lu, id);
+            byte[] b = lu.getBytes(StandardCharsets.UTF_8);
+            reservar(1 + 5 + 5 + b.length);
+            pendientes.put(DEFINIR_ESTUDIANTE);
+            escribirVarint(id);
+            escribirBytes(b);
+        }
+        return id;
+    }
+
+    private void reservar(int bytes) {
+        if (pendientes.remaining() < bytes) {
+            ByteBuffer mayor = ByteBuffer.allocate(Math.max(pendientes.capacity() * 2,
+                    pendientes.position() + bytes));
+            pendientes.flip();
+            mayor.put(pendientes);
+            pendientes = mayor;
+        }
+    }
+
+    private void escribirVarint(int v) {
+        while ((v & ~0x7F) != 0) {
+            pendientes.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        pendientes.put((byte) v);
+    }
+
+    private void escribirBytes(byte[] b) {
+        escribirVarint(b.length);
+        pendientes.put(b);
+    }
+
+    /**
+     * Ciclo del hilo escritor: espera que haya operaciones, deja pasar la
+     * ventana para que se acumulen más, y escribe el grupo con un fsync.
+     */
+    private void escribirGrupos() {
+        while (true) {
+            synchronized (this) {
+                while (registradas == durables && !cerrado) {
+                    escritorEsperando = true;
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // sólo termina cuando se cierra el registro
+                    }
+                    escritorEsperando = false;
+                }
+                if (registradas == durables && cerrado) {
+                    terminado = true;
+                    notifyAll();
+                    return;
+                }
+            }
+            if (ventana > 0) {
+                LockSupport.parkNanos(ventana);
+            }
+            ByteBuffer grupo;
+            long hasta;
+            synchronized (this) {
+                grupo = pendientes;
+                pendientes = libre;
+                hasta = registradas;
+            }
+            try {
+                grupo.flip();
+                while (grupo.hasRemaining()) {
+                    canal.write(grupo);
+                }
+                canal.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    error = e;
+                    terminado = true;
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                grupo.clear();
+                libre = grupo;
+                durables = hasta;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Aplica a siu, en orden, las operaciones guardadas en archivo. siu no
+     * debe tener un registro asociado mientras tanto. Si el último registro
+     * quedó cortado por una caída se lo ignora.
+     *
+     * @Complejidad: O(tamaño del archivo + costo de las operaciones).
+     */
+    public static void reproducir(Path archivo, SistemaSIU siu) throws IOException {
+        try (FileChannel entrada = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (entrada.size() > Integer.MAX_VALUE) {
+                throw new IOException("Registro demasiado grande: " + archivo);
+            }
+            MappedByteBuffer in = entrada.map(FileChannel.MapMode.READ_ONLY, 0, entrada.size());
+            ArrayList<String[]> materias = new ArrayList<>();
+            ArrayList<String> estudiantes = new ArrayList<>();
+            SistemaSIU.CargoDocente[] cargos = SistemaSIU.CargoDocente.values();
+            while (in.hasRemaining()) {
+                try {
+                    byte tipo = in.get();
+                    if (tipo == DEFINIR_MATERIA) {
+                        int id = leerVarint(in);
+                        String carrera = leerString(in);
+                        String materia = leerString(in);
+                        agregarEn(materias, id, new String[] { carrera, materia });
+                    } else if (tipo == DEFINIR_ESTUDIANTE) {
+                        int id = leerVarint(in);
+                        agregarEn(estudiantes, id, leerString(in));
+                    } else if (tipo == INSCRIBIR) {
+                        String lu = estudiantes.get(leerVarint(in));
+                        String[] m = materias.get(leerVarint(in));
+                        siu.inscribir(lu, m[0], m[1]);
+                    } else if (tipo == AGREGAR_DOCENTE) {
+                        SistemaSIU.CargoDocente cargo = cargos[in.get()];
+                        String[] m = materias.get(leerVarint(in));
+                        siu.agregarDocente(cargo, m[0], m[1]);
+                    } else if (tipo == CERRAR_MATERIA) {
+                        String[] m = materias.get(leerVarint(in));
+                        siu.cerrarMateria(m[1], m[0]);
+                    } else if (tipo == DESINSCRIBIR) {
+                        String lu = estudiantes.get(leerVarint(in));
+                        String[] m = materias.get(leerVarint(in));
+                        siu.desinscribir(lu, m[0], m[1]);
+                    } else if (tipo == ADMITIR_POR_CUPO) {
+                        siu.admitirPorCupo(in.get() != 0);
+                    } else {
+                        return; // cola del archivo sin escribir
+                    }
+                } catch (BufferUnderflowException e) {
+                    return; // último registro incompleto
+                }
+            }
+        }
+    }
+
+    private static <T> void agregarEn(ArrayList<T> lista, int id, T valor) throws IOException {
+        if (id != lista.size()) {
+            throw new IOException("Registro de operaciones corrupto: id " + id + " fuera de orden");
+        }
+        lista.add(valor);
+    }
+
+    private static int leerVarint(ByteBuffer in) {
+        int v = 0;
+        int corrimiento = 0;
+        byte b;
+        do {
+            b = in.get();
+            v |= (b & 0x7F) << corrimiento;
+            corrimiento += 7;
+        } while ((b & 0x80) != 0);
+        return v;
+    }
+
+    private static String leerString(ByteBuffer in) {
+        byte[] bytes = new byte[leerVarint(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,12 +1,28 @@
 package aed;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntFunction;
+
+import aed.MetricasSIU.Operacion;
 
 /**
  * Implementación del Sistema SIU.
  *
  * @Nota: Cuando decimos esTrie(t), por ejemplo, estamos diciendo que t cumple
- *        con el invariante de Trie.
+ *        con el invariante de la implementación que eligió la
+ *        FabricaDiccionarios para ese índice (Trie, TrieComprimido o
+ *        DiccionarioHash), o de TrieCongelado si el catálogo se congeló.
  *
  * @InvRep(SistemaSIU siu){
  *                         siu.materiasEstudiante != null &&
@@ -16,6 +32,56 @@ import java.util.ArrayList;
  *                          (∀ trieMateria in siu.carreras.(esTrie(trieMateria) && ∀
  *                                        materia in trieMateria. esMateria(materia)) )
  *                         }
+ *
+ * @Concurrencia: Todas las operaciones públicas salvo el constructor pueden
+ *                llamarse desde varios hilos. Cada Materia es su propio lock,
+ *                así que las operaciones sobre materias distintas avanzan en
+ *                paralelo. Los contadores por estudiante se actualizan de forma
+ *                atómica (DiccionarioEnteros). La estructura de los tries del
+ *                catálogo sólo cambia en cerrarMateria y congelarCatalogo, que
+ *                toman `catalogo` en modo escritura; las búsquedas lo leen en
+ *                modo optimista y sólo toman el lock de lectura si hubo una
+ *                escritura concurrente.
+ *
+ *                Con un RegistroOperaciones asociado, cada operación que
+ *                modifica una materia se registra con el lock de la materia
+ *                tomado (así el orden del registro respeta el orden de las
+ *                operaciones sobre cada materia) y se espera a que sea
+ *                durable después de soltarlo.
+ *
+ *                Las libretas (materias de cada estudiante) se modifican con
+ *                el lock de la materia tomado. Los locks se toman siempre en
+ *                el orden catálogo -> materia -> libreta (y el registro al
+ *                final): ninguna operación pide el catálogo con una materia
+ *                tomada. Por eso cerrarMateria primero cierra la materia y
+ *                después, ya sin su lock, la quita de los tries.
+ *
+ *                Los contadores de materiasEstudiante cuentan también las
+ *                materias cerradas que todavía figuran en la libreta del
+ *                estudiante. cerrarMateria sólo avanza la época de cierres, y
+ *                materiasInscriptas reconcilia la libreta (y descuenta del
+ *                contador) cuando la época avanzó desde la última vez, así que
+ *                devuelve lo mismo que si el cierre hubiera descontado.
+ *
+ *                Las materias que exceden su cupo se mantienen en
+ *                `excedidas` (MateriasExcedidas), que cada modificación
+ *                actualiza con el lock de la materia tomado (materia -> heap).
+ *                Mientras una materia no excede su cupo, modificarla no toma
+ *                el lock del heap.
+ *
+ *                Con admisión por cupo (admitirPorCupo), cada materia decide
+ *                con su propio lock si inscribe al estudiante o lo pone en su
+ *                lista de espera, y promueve a los que esperan con el mismo
+ *                lock: no hay ningún lock global de admisión.
+ *
+ *                carreras() y materias(carrera) guardan el listado que
+ *                calculan y lo reutilizan hasta que cambie el catálogo. Los
+ *                listados se guardan con el catálogo en modo lectura y se
+ *                descartan en modo escritura: cerrarMateria descarta sólo los
+ *                de las carreras de la materia cerrada.
+ *
+ *                Cada operación pública registra su latencia en `metricas`
+ *                sin tomar locks (ver MetricasSIU).
  */
 public class SistemaSIU {
 
@@ -26,8 +92,37 @@ public class SistemaSIU {
         PROF
     }
 
-    private final Trie<Integer> materiasEstudiante = new Trie<>();
-    private final Trie<Trie<Materia>> carreras = new Trie<>();
+    private final DiccionarioEnteros materiasEstudiante;
+    // libreta de cada estudiante, indexada por su posición en materiasEstudiante
+    private Libreta[] libretas = new Libreta[16];
+    private final IntFunction<Libreta> libretaPorId = this::libreta;
+    // época de cierres: cantidad de materias cerradas hasta ahora
+    private final AtomicLong cierres = new AtomicLong();
+    private final FabricaDiccionarios fabrica;
+    private DiccionarioString<DiccionarioString<Materia>> carreras;
+    private final StampedLock catalogo = new StampedLock();
+    // listados ya calculados de carreras() y de materias(carrera), por trie de
+    // materias de la carrera (las claves se comparan por identidad)
+    private volatile String[] listadoCarreras = null;
+    private final ConcurrentHashMap<DiccionarioString<Materia>, String[]> listadosMaterias = new ConcurrentHashMap<>();
+    // nombre de cada carrera, por su trie de materias; cambia con el catálogo
+    // en modo escritura (o mientras se construye el sistema)
+    private final IdentityHashMap<DiccionarioString<Materia>, String> nombresCarreras = new IdentityHashMap<>();
+    // nodos de los diccionarios de carreras y de materias, ya calculados (-1
+    // si hay que recalcularlos); se invalidan junto con los listados
+    private volatile long nodosCarrerasCalculados = -1;
+    private volatile long nodosMateriasCalculados = -1;
+    // inscriptos de las materias abiertas; cambia junto con los contadores de
+    // materias por estudiante, y al cerrar una materia
+    private final LongAdder inscriptosTotales = new LongAdder();
+    private final MateriasExcedidas excedidas = new MateriasExcedidas();
+    private volatile RegistroOperaciones registro = null;
+    private volatile boolean admisionPorCupo = false;
+    private final MetricasSIU metricas = new MetricasSIU(this);
+
+    private static final Comparator<Inscripcion> POR_CARRERA_Y_MATERIA = Comparator
+            .comparing(Inscripcion::getCarrera)
+            .thenComparing(Inscripcion::getNombreMateria);
 
     /**
      * Constructor del SistemaSIU.
@@ -38,50 +133,915 @@ public class SistemaSIU {
      *               todas las carreras y la define en el trie de su carrera.
      */
     public SistemaSIU(InfoMateria[] infoMaterias, String[] libretasUniversitarias) {
+        this(infoMaterias, libretasUniversitarias, FabricaDiccionarios.POR_DEFECTO);
+    }
+
+    /**
+     * Constructor del SistemaSIU con la implementación de cada índice elegida
+     * por fabrica.
+     *
+     * @Complejidad: La del constructor anterior, con O(|lu|) esperado por LU
+     *               si el índice de estudiantes es una tabla de hash.
+     */
+    public SistemaSIU(InfoMateria[] infoMaterias, String[] libretasUniversitarias, FabricaDiccionarios fabrica) {
+        this(fabrica);
         for (String lu : libretasUniversitarias) {
-            materiasEstudiante.definir(lu, 0); // O(|lu|)
+            agregarEstudiante(lu); // O(|lu|)
         }
         for(InfoMateria infoMat : infoMaterias){
             ParCarreraMateria[] paresCarreraMateria = infoMat.getParesCarreraMateria();
             Materia mat = new Materia();
-            ArrayList<Tupla<Trie<Materia>, String>> info = new ArrayList<>();
+            ArrayList<Tupla<DiccionarioString<Materia>, String>> info = new ArrayList<>();
+            for (ParCarreraMateria parCarreraMateria : paresCarreraMateria) {
+                agregarAlias(mat, info, parCarreraMateria.getCarrera(), parCarreraMateria.getNombreMateria());
+            }
+            mat.init(info);
+        }
+    }
+
+    /**
+     * Crea un sistema sin estudiantes ni carreras, para llenarlo con
+     * agregarEstudiante y agregarAlias (ver CargadorSIU).
+     *
+     * @Complejidad: O(1).
+     */
+    SistemaSIU() {
+        this(FabricaDiccionarios.POR_DEFECTO);
+    }
+
+    SistemaSIU(FabricaDiccionarios fabrica) {
+        this.fabrica = fabrica;
+        materiasEstudiante = new DiccionarioEnteros(fabrica.estudiantes());
+        carreras = fabrica.carreras();
+    }
+
+    /**
+     * Da de alta un estudiante sin materias inscriptas.
+     *
+     * @Complejidad: O(|lu|).
+     */
+    void agregarEstudiante(String lu) {
+        materiasEstudiante.definir(lu, 0);
+        int id = materiasEstudiante.posicion(lu);
+        if (id >= libretas.length) {
+            libretas = Arrays.copyOf(libretas, Math.max(id + 1, libretas.length * 2));
+        }
+        libretas[id] = new Libreta();
+    }
+
+    /**
+     * Define la materia mat con el nombre nombreMateria en la carrera
+     * nombreCarrera (creándola si no existe) y agrega el alias a info, que
+     * luego se pasa a Materia#init.
+     *
+     * @Complejidad: O(|c| + |m|).
+     */
+    void agregarAlias(Materia mat, ArrayList<Tupla<DiccionarioString<Materia>, String>> info,
+            String nombreCarrera, String nombreMateria) {
+        DiccionarioString<Materia> carreraRef = obtenerODefinirCarrera(nombreCarrera);
+        carreraRef.definir(nombreMateria, mat);
+        listadosMaterias.remove(carreraRef);
+        nodosMateriasCalculados = -1;
+        info.add(new Tupla<>(carreraRef, nombreMateria));
+    }
+
+    /**
+     * Constructor del SistemaSIU que reparte la construcción en el pool.
+     * Primero crea, en forma secuencial, cada Materia con sus alias (así una
+     * misma Materia queda compartida entre las carreras, igual que en el otro
+     * constructor) y agrupa los pares por carrera. Después, en paralelo, arma
+     * el índice de estudiantes y llena el trie de materias de cada carrera,
+     * cada uno en su propia tarea: los tries que se llenan no comparten nodos.
+     *
+     * @Complejidad: O(|libretasUniversitarias| + |infoMaterias|*|c|*|m|) de
+     *               trabajo total, como el constructor secuencial. El tiempo
+     *               queda dominado por la parte secuencial (O(Σ|c|) sobre los
+     *               pares) y por la carrera o el grupo de LUs más grande.
+     *
+     * @see Trie#construirEnParalelo
+     * @see FabricaDiccionarios#estudiantes(String[], ForkJoinPool)
+     */
+    public SistemaSIU(InfoMateria[] infoMaterias, String[] libretasUniversitarias, ForkJoinPool pool) {
+        this(infoMaterias, libretasUniversitarias, pool, FabricaDiccionarios.POR_DEFECTO);
+    }
+
+    /**
+     * Constructor en paralelo con la implementación de cada índice elegida por
+     * fabrica. El índice de estudiantes sólo se arma en paralelo si es un
+     * Trie; si no, se llena en una sola tarea, en paralelo con el resto.
+     *
+     * @Complejidad: La del constructor anterior.
+     *
+     * @see FabricaDiccionarios#estudiantes(String[], ForkJoinPool)
+     */
+    public SistemaSIU(InfoMateria[] infoMaterias, String[] libretasUniversitarias, ForkJoinPool pool,
+            FabricaDiccionarios fabrica) {
+        this.fabrica = fabrica;
+        carreras = fabrica.carreras();
+        ForkJoinTask<DiccionarioEnteros> estudiantes = pool.submit(() -> new DiccionarioEnteros(
+                fabrica.estudiantes(libretasUniversitarias, pool), libretasUniversitarias.length, 0));
+
+        ArrayList<DiccionarioString<Materia>> tries = new ArrayList<>();
+        ArrayList<ArrayList<Tupla<String, Materia>>> grupos = new ArrayList<>();
+        Trie<Integer> indices = new Trie<>();
+        for (InfoMateria infoMat : infoMaterias) {
+            ParCarreraMateria[] paresCarreraMateria = infoMat.getParesCarreraMateria();
+            Materia mat = new Materia();
+            ArrayList<Tupla<DiccionarioString<Materia>, String>> info = new ArrayList<>();
             for (ParCarreraMateria parCarreraMateria : paresCarreraMateria) {
                 String nombreCarrera = parCarreraMateria.getCarrera();
                 String nombreMateria = parCarreraMateria.getNombreMateria();
-                if (!carreras.esta(nombreCarrera)) {
-                    carreras.definir(nombreCarrera, new Trie<>());
+                Integer indice = indices.buscar(nombreCarrera);
+                if (indice == null) {
+                    indice = tries.size();
+                    indices.definir(nombreCarrera, indice);
+                    DiccionarioString<Materia> nueva = fabrica.materias();
+                    tries.add(nueva);
+                    grupos.add(new ArrayList<>());
+                    carreras.definir(nombreCarrera, nueva);
+                    nombresCarreras.put(nueva, nombreCarrera);
                 }
-                Trie<Materia> carreraRef = carreras.obtener(nombreCarrera);
-                carreraRef.definir(nombreMateria, mat);
-                info.add(new Tupla<>(carreraRef, nombreMateria));
+                grupos.get(indice).add(new Tupla<>(nombreMateria, mat));
+                info.add(new Tupla<>(tries.get(indice), nombreMateria));
             }
             mat.init(info);
         }
+
+        ArrayList<ForkJoinTask<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < tries.size(); i++) {
+            DiccionarioString<Materia> trie = tries.get(i);
+            ArrayList<Tupla<String, Materia>> grupo = grupos.get(i);
+            tareas.add(ForkJoinTask.adapt(() -> {
+                for (Tupla<String, Materia> par : grupo) {
+                    trie.definir(par.fst(), par.snd());
+                }
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tareas)));
+        materiasEstudiante = estudiantes.join();
+        libretas = new Libreta[Math.max(16, libretasUniversitarias.length)];
+        for (int i = 0; i < libretasUniversitarias.length; i++) {
+            libretas[i] = new Libreta();
+        }
+    }
+
+    /**
+     * Carga un sistema desde una instantánea escrita con guardarInstantanea,
+     * con la misma implementación de cada índice (ver FabricaDiccionarios) y,
+     * si lo estaba, con el catálogo congelado.
+     *
+     * @Complejidad: O(tamaño del archivo), es decir O(Σ|lu| + Σ|c| + Σ(|c| +
+     *               |m|) + Σ|m.inscriptos|).
+     *
+     * @see InstantaneaSIU#cargar
+     */
+    public static SistemaSIU cargarInstantanea(Path archivo) throws IOException {
+        return InstantaneaSIU.cargar(archivo);
+    }
+
+    /**
+     * Escribe una instantánea binaria del estado del sistema.
+     *
+     * @Complejidad: O(Σ|lu| + Σ|c| + Σ(|c| + |m|) + Σ|m.inscriptos|).
+     *
+     * @see InstantaneaSIU#guardar
+     */
+    public void guardarInstantanea(Path archivo) throws IOException {
+        InstantaneaSIU.guardar(this, archivo);
+    }
+
+    /**
+     * Asocia un registro de operaciones: desde ahora inscribir, inscribirLote,
+     * desinscribir, agregarDocente, cerrarMateria y admitirPorCupo vuelven
+     * recién cuando la operación está en disco. Con null se deja de registrar.
+     * Si el registro ya se cerró, esas operaciones lanzan
+     * IllegalStateException sin modificar el sistema; para que ninguna
+     * quede sin registrar hay que cerrarlo sin operaciones en curso.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see RegistroOperaciones
+     */
+    public void registrarOperaciones(RegistroOperaciones registro) {
+        this.registro = registro;
+    }
+
+    /**
+     * Activa o desactiva la admisión por cupo. Activa, inscribir e
+     * inscribirLote sólo inscriben mientras la materia tenga cupo y nadie esté
+     * esperando; si no, el estudiante pasa al final de la lista de espera de
+     * la materia, sin contar como inscripto en ella. Cuando agregarDocente
+     * aumenta el cupo, o desinscribir libera un lugar, se inscribe de una vez
+     * a todos los que entran, en orden de llegada. Al desactivarla las
+     * inscripciones vuelven a no tener límite, pero los que ya esperan se
+     * siguen promoviendo a medida que haya cupo.
+     *
+     * Con un registro de operaciones asociado, el cambio se registra (y
+     * vuelve recién cuando está en disco), y la instantánea guarda la admisión
+     * vigente. Las promociones no se registran: son consecuencia de las
+     * operaciones registradas. El cambio no se ordena contra las inscripciones
+     * concurrentes, así que para que el registro las repita igual hay que
+     * cambiarla sin inscripciones en curso.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see Materia#inscribirOEsperar
+     * @see Materia#promover
+     * @see RegistroOperaciones#admitirPorCupo
+     */
+    public void admitirPorCupo(boolean activa) {
+        RegistroOperaciones registro = this.registro;
+        if (registro == null) {
+            this.admisionPorCupo = activa;
+            return;
+        }
+        // se registra antes de cambiarla: con el registro cerrado no cambia
+        long secuencia = registro.admitirPorCupo(activa);
+        this.admisionPorCupo = activa;
+        registro.esperar(secuencia);
+    }
+
+    /**
+     * Devuelve las métricas del sistema: latencias y cantidad de llamadas de
+     * cada operación pública, y contadores de su estado. Están activas desde
+     * la construcción; MetricasSIU#exportar las publica por JMX.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see MetricasSIU
+     */
+    public MetricasSIU metricas() {
+        return metricas;
+    }
+
+    /**
+     * Devuelve los nodos del diccionario de carreras. Se calculan una vez y se
+     * guardan hasta que cambie el catálogo.
+     *
+     * @Complejidad: O(1) si el catálogo no cambió desde la última vez; si no,
+     *               O(Σ|c|).
+     *
+     * @see DiccionarioString#nodos
+     */
+    long nodosCarreras() {
+        long res = nodosCarrerasCalculados;
+        if (res >= 0) {
+            return res;
+        }
+        long stamp = catalogo.readLock();
+        try {
+            // con el catálogo tomado nadie lo invalida mientras tanto
+            res = carreras.nodos();
+            nodosCarrerasCalculados = res;
+            return res;
+        } finally {
+            catalogo.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Devuelve la suma de los nodos de los diccionarios de materias de todas
+     * las carreras. Como nodosCarreras, se guarda hasta que cambie el
+     * catálogo.
+     *
+     * @Complejidad: O(1) si el catálogo no cambió desde la última vez; si no,
+     *               O(Σ|c| + Σ|m|).
+     *
+     * @see DiccionarioString#nodos
+     */
+    long nodosMaterias() {
+        long res = nodosMateriasCalculados;
+        if (res >= 0) {
+            return res;
+        }
+        long stamp = catalogo.readLock();
+        try {
+            res = 0;
+            for (DiccionarioString<Materia> carrera : carreras.values()) {
+                res += carrera.nodos();
+            }
+            nodosMateriasCalculados = res;
+            return res;
+        } finally {
+            catalogo.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Devuelve la suma de los inscriptos de las materias abiertas, contando
+     * una vez cada materia aunque tenga nombres en varias carreras. Con
+     * inscripciones en curso puede no reflejar todavía las últimas.
+     *
+     * @Complejidad: O(cantidad de hilos que inscribieron), ver LongAdder#sum.
+     */
+    long totalInscriptos() {
+        return inscriptosTotales.sum();
+    }
+
+    /**
+     * Suma cantidad a los inscriptos totales (ver totalInscriptos), para
+     * quien inscribe sin pasar por inscribir (InstantaneaSIU).
+     *
+     * @Complejidad: O(1).
+     */
+    void sumarInscriptos(int cantidad) {
+        inscriptosTotales.add(cantidad);
+    }
+
+    DiccionarioEnteros materiasEstudiante() {
+        return materiasEstudiante;
+    }
+
+    DiccionarioString<DiccionarioString<Materia>> carrerasDiccionario() {
+        return carreras;
+    }
+
+    StampedLock catalogo() {
+        return catalogo;
+    }
+
+    FabricaDiccionarios fabrica() {
+        return fabrica;
+    }
+
+    /**
+     * Devuelve si el catálogo está congelado (ver congelarCatalogo). Hay que
+     * llamarla con el catálogo tomado.
+     */
+    boolean catalogoCongelado() {
+        return carreras instanceof TrieCongelado;
+    }
+
+    boolean admisionPorCupo() {
+        return admisionPorCupo;
+    }
+
+    /**
+     * Devuelve la libreta del estudiante con posición id en
+     * materiasEstudiante.
+     *
+     * @Complejidad: O(1).
+     */
+    Libreta libreta(int id) {
+        return libretas[id];
+    }
+
+    /**
+     * Devuelve el trie de materias de la carrera, creándolo si no existe.
+     * Recorre el trie de carreras una sola vez si la carrera ya existe.
+     *
+     * @Complejidad: O(|c|).
+     */
+    DiccionarioString<Materia> obtenerODefinirCarrera(String nombreCarrera) {
+        DiccionarioString<Materia> carreraRef = carreras.buscar(nombreCarrera);
+        if (carreraRef == null) {
+            carreraRef = fabrica.materias();
+            carreras.definir(nombreCarrera, carreraRef);
+            nombresCarreras.put(carreraRef, nombreCarrera);
+            listadoCarreras = null;
+            nodosCarrerasCalculados = -1;
+        }
+        return carreraRef;
+    }
+
+    /**
+     * Congela el catálogo: reemplaza el trie de carreras y el de materias de
+     * cada carrera por su versión TrieCongelado, más compacta y rápida de
+     * recorrer. Las materias cerradas después quedan como lápidas.
+     *
+     * @Complejidad: O(Σ|c| + Σ|m|) en la práctica; en el peor caso, ubicar
+     *               los hijos de cada estado es cuadrático en el tamaño de
+     *               cada trie (ver TrieCongelado).
+     *
+     * @see TrieCongelado
+     * @see Materia#reemplazarCarrera
+     */
+    public void congelarCatalogo() {
+        long stamp = catalogo.writeLock();
+        try {
+            congelarCatalogoBloqueado();
+        } finally {
+            catalogo.unlockWrite(stamp);
+        }
+    }
+
+    private void congelarCatalogoBloqueado() {
+        String[] nombres = carreras.keys();
+        ArrayList<DiccionarioString<Materia>> anteriores = carreras.values();
+        ArrayList<DiccionarioString<Materia>> congeladas = new ArrayList<>(anteriores.size());
+        for (DiccionarioString<Materia> anterior : anteriores) {
+            TrieCongelado<Materia> congelada = new TrieCongelado<>(anterior);
+            for (Materia mat : anterior.values()) {
+                mat.reemplazarCarrera(anterior, congelada);
+            }
+            // las claves no cambian: el listado pasa a la versión congelada
+            String[] listado = listadosMaterias.remove(anterior);
+            if (listado != null) {
+                listadosMaterias.put(congelada, listado);
+            }
+            nombresCarreras.put(congelada, nombresCarreras.remove(anterior));
+            congeladas.add(congelada);
+        }
+        carreras = new TrieCongelado<>(nombres, congeladas);
+        nodosCarrerasCalculados = -1;
+        nodosMateriasCalculados = -1;
     }
 
     /**
-     * Inscribe un alumno a la materia de una carrera.
+     * Devuelve la materia de una carrera. Lee el catálogo en modo optimista:
+     * si mientras tanto hubo un cierre (que modifica los tries) repite la
+     * búsqueda con el lock de lectura.
      *
-     * @Complejidad: O(|c| + |m| + |estudiante|).
+     * @Complejidad: O(|c| + |m|).
+     */
+    private Materia buscarMateria(String carrera, String materia) {
+        long stamp = catalogo.tryOptimisticRead();
+        Materia mat = null;
+        try {
+            mat = carreras.obtener(carrera).obtener(materia);
+        } catch (RuntimeException e) {
+            // un trie a medio modificar puede hacer fallar la búsqueda
+            if (catalogo.validate(stamp)) {
+                throw e;
+            }
+        }
+        if (!catalogo.validate(stamp)) {
+            stamp = catalogo.readLock();
+            try {
+                mat = carreras.obtener(carrera).obtener(materia);
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        }
+        return mat;
+    }
+
+    /**
+     * Como buscarMateria, pero devuelve null si la carrera o la materia no
+     * están en el catálogo (por ejemplo, si la materia se cerró y ya se quitó
+     * de los tries).
+     *
+     * @Complejidad: O(|c| + |m|).
+     */
+    private Materia buscarMateriaSiExiste(String carrera, String materia) {
+        long stamp = catalogo.tryOptimisticRead();
+        Materia mat = null;
+        try {
+            mat = buscarEn(carreras, carrera, materia);
+        } catch (RuntimeException e) {
+            if (catalogo.validate(stamp)) {
+                throw e;
+            }
+        }
+        if (!catalogo.validate(stamp)) {
+            stamp = catalogo.readLock();
+            try {
+                mat = buscarEn(carreras, carrera, materia);
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        }
+        return mat;
+    }
+
+    private static Materia buscarEn(DiccionarioString<DiccionarioString<Materia>> carreras, String carrera,
+            String materia) {
+        DiccionarioString<Materia> materias = carreras.buscar(carrera);
+        return materias == null ? null : materias.buscar(materia);
+    }
+
+    /**
+     * Eleva las cotas de inscriptos de la materia en sus carreras (ver
+     * Materia#elevarCotas). Como buscarMateria, lee el catálogo en modo
+     * optimista y repite con el lock de lectura si hubo un cierre o un
+     * congelamiento concurrente; en ese caso alguna cota pudo quedar sin
+     * elevar en un trie a medio modificar, así que se vuelven a recorrer. Se
+     * llama sin el lock de la materia, que Materia#elevarCotas toma después
+     * del catálogo.
+     *
+     * @Complejidad: O(1) amortizado si no hay escrituras concurrentes del
+     *               catálogo; O(Σ|Nm|) cuando recorre los tries (ver
+     *               Materia#elevarCotas).
+     */
+    private void elevarCotas(Materia mat) {
+        long stamp = catalogo.tryOptimisticRead();
+        try {
+            mat.elevarCotas(false);
+        } catch (RuntimeException e) {
+            if (catalogo.validate(stamp)) {
+                throw e;
+            }
+        }
+        if (!catalogo.validate(stamp)) {
+            stamp = catalogo.readLock();
+            try {
+                mat.elevarCotas(true);
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Actualiza el exceso de mat en las materias excedidas. Si mat no excede
+     * su cupo ni estaba entre las excedidas, no toma el lock del heap. Toma el
+     * lock de mat (quien la llame puede tenerlo tomado).
+     *
+     * @Complejidad: O(log n), con n la cantidad de materias excedidas; O(1)
+     *               si mat no excede su cupo.
+     *
+     * @see MateriasExcedidas#actualizar
+     */
+    void actualizarExceso(Materia mat) {
+        synchronized (mat) {
+            int exceso = mat.exceso();
+            if (exceso > 0 || mat.posicionExcedidas >= 0) {
+                excedidas.actualizar(mat, exceso);
+            }
+        }
+    }
+
+    /**
+     * Inscribe a los estudiantes de la lista de espera de mat que entran en su
+     * cupo y suma la materia a sus contadores en una sola pasada. Hay que
+     * llamarla con el lock de mat tomado, como al inscribir. Devuelve si
+     * promovió a alguno: en ese caso, quien la llame tiene que elevar las
+     * cotas de mat (ver elevarCotas) después de soltar su lock.
+     *
+     * @Complejidad: O(p), con p la cantidad de promovidos.
+     *
+     * @see Materia#promover
+     */
+    private boolean promover(Materia mat) {
+        int[] promovidos = mat.promover(libretaPorId);
+        for (int id : promovidos) {
+            materiasEstudiante.incrementarPosicion(id);
+        }
+        inscriptosTotales.add(promovidos.length);
+        return promovidos.length > 0;
+    }
+
+    /**
+     * Busca la materia de una carrera una sola vez y devuelve una referencia
+     * para operar sobre ella sin volver a recorrer los diccionarios (ver las
+     * sobrecargas de inscribir, agregarDocente, plantelDocente, inscriptos y
+     * excedeCupo que la reciben).
+     *
+     * @Complejidad: O(|c| + |m|).
+     *
+     * @see ReferenciaMateria
+     */
+    public ReferenciaMateria resolver(String carrera, String materia) {
+        long inicio = metricas.iniciar(Operacion.RESOLVER);
+        try {
+            return new ReferenciaMateria(this, buscarMateria(carrera, materia), carrera, materia);
+        } finally {
+            metricas.registrar(Operacion.RESOLVER, inicio);
+        }
+    }
+
+    /**
+     * Devuelve la materia de una referencia resuelta en este sistema. Lanza
+     * IllegalArgumentException si es de otro.
+     *
+     * @Complejidad: O(1).
+     */
+    private Materia propia(ReferenciaMateria materia) {
+        if (materia.sistema != this) {
+            throw new IllegalArgumentException("La referencia es de otro SistemaSIU");
+        }
+        return materia.materia;
+    }
+
+    /**
+     * Como propia, pero además lanza IllegalStateException si la materia está
+     * cerrada. Las modificaciones no la necesitan: Materia ya lo verifica con
+     * su lock tomado.
+     *
+     * @Complejidad: O(1).
+     */
+    private Materia abierta(ReferenciaMateria materia) {
+        Materia mat = propia(materia);
+        if (mat.estaCerrada()) {
+            throw new IllegalStateException("La materia está cerrada");
+        }
+        return mat;
+    }
+
+    /**
+     * Inscribe un alumno a la materia de una carrera. Con admisión por cupo,
+     * si la materia no tiene cupo lo agrega a su lista de espera.
+     *
+     * @Complejidad: O(|c| + |m| + |estudiante|) amortizado. Las cotas de
+     *               inscriptos sólo se elevan, en O(Σ|Nm|), cuando la
+     *               cantidad de inscriptos supera la última cota publicada
+     *               (ver Materia#elevarCotas).
      *
      * @see Trie#obtener
      * @see Materia#inscribirAlumno
+     * @see DiccionarioEnteros#incrementarPosicion
+     * @see #elevarCotas
      */
     public void inscribir(String estudiante, String carrera, String materia) {
-        carreras.obtener(carrera).obtener(materia).inscribirAlumno(estudiante);
-        materiasEstudiante.modificar(estudiante, x -> x + 1);
+        long inicio = metricas.iniciar(Operacion.INSCRIBIR);
+        try {
+            inscribir(estudiante, buscarMateria(carrera, materia), carrera, materia);
+        } finally {
+            metricas.registrar(Operacion.INSCRIBIR, inicio);
+        }
+    }
+
+    /**
+     * Como inscribir(estudiante, carrera, materia), sobre una materia ya
+     * resuelta. Lanza IllegalStateException si la materia está cerrada.
+     *
+     * @Complejidad: O(|estudiante|) amortizado: no recorre los tries ni para
+     *               buscar la materia ni, salvo cuando se supera la cota
+     *               publicada, para elevar sus cotas (ver Materia#elevarCotas).
+     *
+     * @see #resolver
+     */
+    public void inscribir(String estudiante, ReferenciaMateria materia) {
+        long inicio = metricas.iniciar(Operacion.INSCRIBIR);
+        try {
+            inscribir(estudiante, propia(materia), materia.getCarrera(), materia.getNombreMateria());
+        } finally {
+            metricas.registrar(Operacion.INSCRIBIR, inicio);
+        }
+    }
+
+    private void inscribir(String estudiante, Materia mat, String carrera, String materia) {
+        RegistroOperaciones registro = this.registro;
+        long secuencia = 0;
+        int id = materiasEstudiante.posicion(estudiante);
+        synchronized (mat) {
+            if (registro != null) {
+                registro.verificarAbierto();
+            }
+            // el contador se actualiza con la materia tomada para que un
+            // cierre concurrente nunca lo decremente antes que se incremente
+            if (!admisionPorCupo) {
+                mat.inscribirAlumno(id, libretas[id]);
+                materiasEstudiante.incrementarPosicion(id);
+                inscriptosTotales.increment();
+            } else if (mat.inscribirOEsperar(id, libretas[id])) {
+                materiasEstudiante.incrementarPosicion(id);
+                inscriptosTotales.increment();
+            }
+            actualizarExceso(mat);
+            if (registro != null) {
+                secuencia = registro.inscribir(estudiante, carrera, materia);
+            }
+        }
+        elevarCotas(mat);
+        if (registro != null) {
+            registro.esperar(secuencia);
+        }
+    }
+
+    /**
+     * Inscribe un lote de estudiantes. Equivale a llamar a inscribir por cada
+     * elemento del lote, pero agrupa el lote por (carrera, materia): cada
+     * materia se busca y se bloquea una sola vez, y los contadores de cada
+     * estudiante se actualizan en una única pasada sobre los identificadores
+     * ordenados, sumando de una vez todas las inscripciones del mismo
+     * estudiante.
+     *
+     * Primero se buscan todas las materias del lote. Los contadores se
+     * incrementan después, sólo para las materias encontradas abiertas, y
+     * antes de agregar a los estudiantes a las materias, para que un cierre
+     * concurrente nunca los deje negativos. Si alguna materia del lote no
+     * existe o está cerrada (también si otro hilo la cierra mientras tanto),
+     * se inscribe el resto, esa materia no suma a los contadores y al final
+     * se lanza IllegalStateException.
+     *
+     * @Complejidad: O(n * log(n) * (|c| + |m|) + Σ|estudiante|), con
+     *               n = |lote|, por el ordenamiento por carrera y materia. Las
+     *               búsquedas en los tries de carreras son O(Σ (|c| + |m|))
+     *               sobre las materias distintas del lote.
+     *
+     * @see Materia#inscribirAlumnos
+     * @see DiccionarioEnteros#sumarEnPosicion
+     */
+    public void inscribirLote(Inscripcion[] lote) {
+        long inicio = metricas.iniciar(Operacion.INSCRIBIR_LOTE);
+        try {
+            Inscripcion[] ordenado = lote.clone();
+            Arrays.sort(ordenado, POR_CARRERA_Y_MATERIA);
+            int[] ids = new int[ordenado.length];
+            Libreta[] libretasLote = new Libreta[ordenado.length];
+            for (int i = 0; i < ordenado.length; i++) {
+                ids[i] = materiasEstudiante.posicion(ordenado[i].getEstudiante());
+                libretasLote[i] = libretas[ids[i]];
+            }
+
+            RegistroOperaciones registro = this.registro;
+            if (registro != null) {
+                registro.verificarAbierto();
+            }
+
+            // materias[i] es la materia del grupo que empieza en i (null si no
+            // está o está cerrada); se buscan todas antes de tocar los contadores
+            Materia[] materias = new Materia[ordenado.length];
+            IllegalStateException error = null;
+            int[] porEstudiante = new int[ordenado.length];
+            int cantidad = 0;
+            for (int i = 0; i < ordenado.length;) {
+                int j = finDeGrupo(ordenado, i);
+                Materia mat = buscarMateriaSiExiste(ordenado[i].getCarrera(), ordenado[i].getNombreMateria());
+                if (mat == null || mat.estaCerrada()) {
+                    error = new IllegalStateException("La materia " + ordenado[i].getNombreMateria() + " de "
+                            + ordenado[i].getCarrera() + " no existe o está cerrada");
+                } else {
+                    materias[i] = mat;
+                    System.arraycopy(ids, i, porEstudiante, cantidad, j - i);
+                    cantidad += j - i;
+                }
+                i = j;
+            }
+            Arrays.sort(porEstudiante, 0, cantidad);
+            for (int i = 0; i < cantidad;) {
+                int j = i + 1;
+                while (j < cantidad && porEstudiante[j] == porEstudiante[i]) {
+                    j++;
+                }
+                materiasEstudiante.sumarEnPosicion(porEstudiante[i], j - i);
+                i = j;
+            }
+            inscriptosTotales.add(cantidad);
+
+            long secuencia = 0;
+            for (int i = 0; i < ordenado.length;) {
+                int j = finDeGrupo(ordenado, i);
+                Materia mat = materias[i];
+                if (mat == null) {
+                    i = j;
+                    continue;
+                }
+                boolean cerrada;
+                synchronized (mat) {
+                    cerrada = mat.estaCerrada();
+                    if (cerrada) {
+                        // otro hilo la cerró después de buscarla
+                        for (int k = i; k < j; k++) {
+                            materiasEstudiante.decrementarPosicion(ids[k]);
+                        }
+                        inscriptosTotales.add(-(j - i));
+                        error = new IllegalStateException("La materia " + ordenado[i].getNombreMateria() + " de "
+                                + ordenado[i].getCarrera() + " no existe o está cerrada");
+                    } else {
+                        if (!admisionPorCupo) {
+                            mat.inscribirAlumnos(ids, libretasLote, i, j);
+                        } else {
+                            // los que quedan esperando no suman la materia
+                            for (int k = i + mat.inscribirOEsperar(ids, libretasLote, i, j); k < j; k++) {
+                                materiasEstudiante.decrementarPosicion(ids[k]);
+                                inscriptosTotales.decrement();
+                            }
+                        }
+                        actualizarExceso(mat);
+                        for (int k = i; registro != null && k < j; k++) {
+                            secuencia = registro.inscribir(ordenado[k].getEstudiante(),
+                                    ordenado[k].getCarrera(), ordenado[k].getNombreMateria());
+                        }
+                    }
+                }
+                if (!cerrada) {
+                    elevarCotas(mat);
+                }
+                i = j;
+            }
+            if (registro != null) {
+                registro.esperar(secuencia);
+            }
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            metricas.registrar(Operacion.INSCRIBIR_LOTE, inicio);
+        }
+    }
+
+    /**
+     * Devuelve el fin del grupo de ordenado (ordenado por carrera y materia)
+     * que empieza en i: la primera posición con otra carrera o materia.
+     *
+     * @Complejidad: O((j - i) * (|c| + |m|)).
+     */
+    private static int finDeGrupo(Inscripcion[] ordenado, int i) {
+        int j = i + 1;
+        while (j < ordenado.length && POR_CARRERA_Y_MATERIA.compare(ordenado[i], ordenado[j]) == 0) {
+            j++;
+        }
+        return j;
+    }
+
+    /**
+     * Desinscribe a un estudiante de la materia de una carrera. Lanza
+     * IllegalArgumentException si no estaba inscripto e IllegalStateException
+     * si la materia está cerrada. Si el lugar liberado entra en el cupo,
+     * inscribe al primero de la lista de espera.
+     *
+     * @Complejidad: O(|c| + |m| + |estudiante| + materias del estudiante). El
+     *               estudiante se quita de los inscriptos de la materia en
+     *               O(1). Si promueve a alguien, más lo que cueste elevar las
+     *               cotas (ver Materia#elevarCotas).
+     *
+     * @see Materia#desinscribirAlumno
+     */
+    public void desinscribir(String estudiante, String carrera, String materia) {
+        long inicio = metricas.iniciar(Operacion.DESINSCRIBIR);
+        try {
+            RegistroOperaciones registro = this.registro;
+            long secuencia = 0;
+            int id = materiasEstudiante.posicion(estudiante);
+            Materia mat = buscarMateria(carrera, materia);
+            boolean promovio;
+            synchronized (mat) {
+                if (registro != null) {
+                    registro.verificarAbierto();
+                }
+                mat.desinscribirAlumno(libretas[id], libretaPorId);
+                materiasEstudiante.decrementarPosicion(id);
+                inscriptosTotales.decrement();
+                promovio = promover(mat);
+                actualizarExceso(mat);
+                if (registro != null) {
+                    secuencia = registro.desinscribir(estudiante, carrera, materia);
+                }
+            }
+            if (promovio) {
+                elevarCotas(mat);
+            }
+            if (registro != null) {
+                registro.esperar(secuencia);
+            }
+        } finally {
+            metricas.registrar(Operacion.DESINSCRIBIR, inicio);
+        }
     }
 
     /**
      * Agrega un docente del cargo correspondiente a la materia de una carrera.
+     * Si el cupo aumenta, inscribe de una vez a los de la lista de espera que
+     * entran (ver admitirPorCupo).
      *
-     * @Complejidad: O(|c| + |m|).
+     * @Complejidad: O(|c| + |m| + p), con p la cantidad de promovidos, más
+     *               lo que cueste elevar las cotas si promovió a alguno (ver
+     *               Materia#elevarCotas).
      *
      * @see Trie#obtener
      * @see Materia#agregarDocente
      */
     public void agregarDocente(CargoDocente cargo, String carrera, String materia) {
-        carreras.obtener(carrera).obtener(materia).agregarDocente(cargo);
+        long inicio = metricas.iniciar(Operacion.AGREGAR_DOCENTE);
+        try {
+            agregarDocente(cargo, buscarMateria(carrera, materia), carrera, materia);
+        } finally {
+            metricas.registrar(Operacion.AGREGAR_DOCENTE, inicio);
+        }
+    }
+
+    /**
+     * Como agregarDocente(cargo, carrera, materia), sobre una materia ya
+     * resuelta. Lanza IllegalStateException si la materia está cerrada.
+     *
+     * @Complejidad: O(p), con p la cantidad de promovidos, más lo que cueste
+     *               elevar las cotas si promovió a alguno (ver
+     *               Materia#elevarCotas).
+     *
+     * @see #resolver
+     */
+    public void agregarDocente(CargoDocente cargo, ReferenciaMateria materia) {
+        long inicio = metricas.iniciar(Operacion.AGREGAR_DOCENTE);
+        try {
+            agregarDocente(cargo, propia(materia), materia.getCarrera(), materia.getNombreMateria());
+        } finally {
+            metricas.registrar(Operacion.AGREGAR_DOCENTE, inicio);
+        }
+    }
+
+    private void agregarDocente(CargoDocente cargo, Materia mat, String carrera, String materia) {
+        RegistroOperaciones registro = this.registro;
+        long secuencia = 0;
+        boolean promovio;
+        synchronized (mat) {
+            if (registro != null) {
+                registro.verificarAbierto();
+            }
+            mat.agregarDocente(cargo);
+            promovio = promover(mat);
+            actualizarExceso(mat);
+            if (registro != null) {
+                secuencia = registro.agregarDocente(cargo, carrera, materia);
+            }
+        }
+        if (promovio) {
+            elevarCotas(mat);
+        }
+        if (registro != null) {
+            registro.esperar(secuencia);
+        }
     }
 
     /**
@@ -93,27 +1053,80 @@ public class SistemaSIU {
      * @see Materia#plantelDocente
      */
     public int[] plantelDocente(String materia, String carrera) {
-        return carreras.obtener(carrera).obtener(materia).plantelDocente();
+        long inicio = metricas.iniciar(Operacion.PLANTEL_DOCENTE);
+        try {
+            return buscarMateria(carrera, materia).plantelDocente();
+        } finally {
+            metricas.registrar(Operacion.PLANTEL_DOCENTE, inicio);
+        }
     }
 
     /**
-     * Cierra una materia de una carrera.
+     * Como plantelDocente(materia, carrera), sobre una materia ya resuelta.
+     * Lanza IllegalStateException si la materia está cerrada.
      *
-     * @Complejidad: O(|c| + |m| + |m.inscriptos| + Σ|Nm|).
+     * @Complejidad: O(1).
+     *
+     * @see #resolver
+     */
+    public int[] plantelDocente(ReferenciaMateria materia) {
+        long inicio = metricas.iniciar(Operacion.PLANTEL_DOCENTE);
+        try {
+            return abierta(materia).plantelDocente();
+        } finally {
+            metricas.registrar(Operacion.PLANTEL_DOCENTE, inicio);
+        }
+    }
+
+    /**
+     * Cierra una materia de una carrera. No recorre los inscriptos: los
+     * contadores se corrigen al consultarlos (ver materiasInscriptas).
+     *
+     * @Complejidad: O(|c| + |m| + Σ|Nm|). Independiente de la cantidad de
+     *               inscriptos; el catálogo queda tomado en modo escritura
+     *               sólo para borrar los Σ|Nm| alias.
      *
      * @see Trie#obtener
-     * @see Trie#modificar
      * @see Materia#cerrarMateria
-     * @see Materia#iteradorAlumnos
+     * @see Materia#quitarDeCarreras
      */
     public void cerrarMateria(String materia, String carrera) {
-        Materia mat = carreras.obtener(carrera).obtener(materia);
-        Iterador<String> it = mat.iteradorAlumnos();
-        while (it.haySiguiente()) {
-            String alumno = it.siguiente();
-            materiasEstudiante.modificar(alumno, x -> x - 1);
+        long inicio = metricas.iniciar(Operacion.CERRAR_MATERIA);
+        try {
+            RegistroOperaciones registro = this.registro;
+            long secuencia = 0;
+            Materia mat = buscarMateria(carrera, materia);
+            synchronized (mat) {
+                if (registro != null) {
+                    registro.verificarAbierto();
+                }
+                mat.cerrarMateria();
+                excedidas.quitar(mat);
+                inscriptosTotales.add(-mat.cantidadInscriptos());
+                if (registro != null) {
+                    secuencia = registro.cerrarMateria(carrera, materia);
+                }
+            }
+            // después de marcarla cerrada: quien vea la época nueva la ve cerrada
+            cierres.incrementAndGet();
+            // ya cerrada, nadie más la modifica: se la quita de las carreras sin
+            // su lock, para no tomar el catálogo con una materia tomada
+            long stamp = catalogo.writeLock();
+            try {
+                mat.quitarDeCarreras();
+                for (Tupla<DiccionarioString<Materia>, String> alias : mat.nombresEnCarreras()) {
+                    listadosMaterias.remove(alias.fst());
+                }
+                nodosMateriasCalculados = -1;
+            } finally {
+                catalogo.unlockWrite(stamp);
+            }
+            if (registro != null) {
+                registro.esperar(secuencia);
+            }
+        } finally {
+            metricas.registrar(Operacion.CERRAR_MATERIA, inicio);
         }
-        carreras.obtener(carrera).obtener(materia).cerrarMateria();
     }
 
     /**
@@ -124,7 +1137,44 @@ public class SistemaSIU {
      * @see Trie#obtener
      */
     public int inscriptos(String materia, String carrera) {
-        return carreras.obtener(carrera).obtener(materia).cantidadInscriptos();
+        long inicio = metricas.iniciar(Operacion.INSCRIPTOS);
+        try {
+            return buscarMateria(carrera, materia).cantidadInscriptos();
+        } finally {
+            metricas.registrar(Operacion.INSCRIPTOS, inicio);
+        }
+    }
+
+    /**
+     * Devuelve la cantidad de estudiantes en la lista de espera de una materia
+     * de una carrera (ver admitirPorCupo).
+     *
+     * @Complejidad: O(|c| + |m|).
+     */
+    public int enEspera(String materia, String carrera) {
+        long inicio = metricas.iniciar(Operacion.EN_ESPERA);
+        try {
+            return buscarMateria(carrera, materia).cantidadEnEspera();
+        } finally {
+            metricas.registrar(Operacion.EN_ESPERA, inicio);
+        }
+    }
+
+    /**
+     * Como inscriptos(materia, carrera), sobre una materia ya resuelta. Lanza
+     * IllegalStateException si la materia está cerrada.
+     *
+     * @Complejidad: O(1).
+     *
+     * @see #resolver
+     */
+    public int inscriptos(ReferenciaMateria materia) {
+        long inicio = metricas.iniciar(Operacion.INSCRIPTOS);
+        try {
+            return abierta(materia).cantidadInscriptos();
+        } finally {
+            metricas.registrar(Operacion.INSCRIPTOS, inicio);
+        }
     }
 
     /**
@@ -137,41 +1187,359 @@ public class SistemaSIU {
      * @see Materia#excedeCupo
      */
     public boolean excedeCupo(String materia, String carrera) {
-        return carreras.obtener(carrera).obtener(materia).excedeCupo();
+        long inicio = metricas.iniciar(Operacion.EXCEDE_CUPO);
+        try {
+            return buscarMateria(carrera, materia).excedeCupo();
+        } finally {
+            metricas.registrar(Operacion.EXCEDE_CUPO, inicio);
+        }
     }
 
     /**
-     * Devuelve las carreras.
+     * Como excedeCupo(materia, carrera), sobre una materia ya resuelta. Lanza
+     * IllegalStateException si la materia está cerrada.
      *
-     * @Complejidad: O(Σ|c|).
+     * @Complejidad: O(1).
+     *
+     * @see #resolver
+     */
+    public boolean excedeCupo(ReferenciaMateria materia) {
+        long inicio = metricas.iniciar(Operacion.EXCEDE_CUPO);
+        try {
+            return abierta(materia).excedeCupo();
+        } finally {
+            metricas.registrar(Operacion.EXCEDE_CUPO, inicio);
+        }
+    }
+
+    /**
+     * Devuelve las carreras. El listado se calcula una vez y se reutiliza
+     * mientras no se agreguen carreras; cada llamada devuelve una copia.
+     *
+     * @Complejidad: O(cantidad de carreras) si el listado ya estaba calculado
+     *               (la copia, sin recorrer el trie); si no, O(Σ|c|).
      *
      * @see Trie#keys
      */
     public String[] carreras() {
-        return carreras.keys();
+        long inicio = metricas.iniciar(Operacion.CARRERAS);
+        try {
+            String[] res = listadoCarreras;
+            if (res == null) {
+                long stamp = catalogo.readLock();
+                try {
+                    res = carreras.keys();
+                    listadoCarreras = res;
+                } finally {
+                    catalogo.unlockRead(stamp);
+                }
+            }
+            return res.clone();
+        } finally {
+            metricas.registrar(Operacion.CARRERAS, inicio);
+        }
     }
 
     /**
-     * Devuelve las materias de una carrera.
+     * Devuelve las materias de una carrera. El listado se calcula una vez y se
+     * reutiliza hasta que se cierre una materia de la carrera; cada llamada
+     * devuelve una copia. Como buscarMateria, si el listado ya estaba
+     * calculado lee el catálogo en modo optimista.
      *
-     * @Complejidad: O(|c| + Σ|m|).
+     * @Complejidad: O(|c| + cantidad de materias de la carrera) si el listado
+     *               ya estaba calculado; si no, O(|c| + Σ|m|).
      *
      * @see Trie#obtener
      * @see Trie#keys
      */
     public String[] materias(String carrera) {
-        return carreras.obtener(carrera).keys();
+        long inicio = metricas.iniciar(Operacion.MATERIAS);
+        try {
+            long stamp = catalogo.tryOptimisticRead();
+            String[] res = null;
+            try {
+                res = listadosMaterias.get(carreras.obtener(carrera));
+            } catch (RuntimeException e) {
+                if (catalogo.validate(stamp)) {
+                    throw e;
+                }
+            }
+            if (res == null || !catalogo.validate(stamp)) {
+                // se guarda en modo lectura: ningún cierre lo descarta antes de
+                // que esté guardado
+                stamp = catalogo.readLock();
+                try {
+                    DiccionarioString<Materia> materias = carreras.obtener(carrera);
+                    res = listadosMaterias.get(materias);
+                    if (res == null) {
+                        res = materias.keys();
+                        listadosMaterias.put(materias, res);
+                    }
+                } finally {
+                    catalogo.unlockRead(stamp);
+                }
+            }
+            return res.clone();
+        } finally {
+            metricas.registrar(Operacion.MATERIAS, inicio);
+        }
+    }
+
+    /**
+     * Devuelve las carreras cuyo nombre empieza con prefijo, ordenadas
+     * lexicográficamente.
+     *
+     * @Complejidad: O(|prefijo| + Σ|c|) sobre las carreras con el prefijo.
+     *
+     * @see DiccionarioString#cursorConPrefijo
+     */
+    public String[] carrerasConPrefijo(String prefijo) {
+        long inicio = metricas.iniciar(Operacion.CARRERAS_CON_PREFIJO);
+        try {
+            long stamp = catalogo.readLock();
+            try {
+                return claves(carreras.cursorConPrefijo(prefijo));
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        } finally {
+            metricas.registrar(Operacion.CARRERAS_CON_PREFIJO, inicio);
+        }
+    }
+
+    /**
+     * Devuelve las materias de una carrera cuyo nombre empieza con prefijo,
+     * ordenadas lexicográficamente. A diferencia de materias(carrera), sólo
+     * recorre el subárbol del prefijo.
+     *
+     * @Complejidad: O(|c| + |prefijo| + Σ|m|) sobre las materias con el
+     *               prefijo.
+     *
+     * @see DiccionarioString#cursorConPrefijo
+     */
+    public String[] materiasConPrefijo(String carrera, String prefijo) {
+        long inicio = metricas.iniciar(Operacion.MATERIAS_CON_PREFIJO);
+        try {
+            long stamp = catalogo.readLock();
+            try {
+                return claves(carreras.obtener(carrera).cursorConPrefijo(prefijo));
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        } finally {
+            metricas.registrar(Operacion.MATERIAS_CON_PREFIJO, inicio);
+        }
+    }
+
+    /**
+     * Devuelve los pares (carrera, materia) de todas las carreras cuyo nombre
+     * de materia empieza con prefijo, ordenados por carrera y luego por
+     * materia. Una materia con nombres en varias carreras aparece una vez por
+     * carrera.
+     *
+     * @Complejidad: O(Σ|c| + cantidad de carreras * |prefijo| + Σ|m|) sobre
+     *               las materias con el prefijo.
+     */
+    public ParCarreraMateria[] materiasConPrefijo(String prefijo) {
+        long inicio = metricas.iniciar(Operacion.MATERIAS_CON_PREFIJO);
+        try {
+            long stamp = catalogo.readLock();
+            try {
+                ArrayList<ParCarreraMateria> res = new ArrayList<>();
+                CursorDiccionario<DiccionarioString<Materia>> c = carreras.cursor();
+                while (c.avanzar()) {
+                    CursorDiccionario<Materia> m = c.valor().cursorConPrefijo(prefijo);
+                    while (m.avanzar()) {
+                        res.add(new ParCarreraMateria(c.clave(), m.clave()));
+                    }
+                }
+                return res.toArray(new ParCarreraMateria[0]);
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        } finally {
+            metricas.registrar(Operacion.MATERIAS_CON_PREFIJO, inicio);
+        }
+    }
+
+    /**
+     * Devuelve las (a lo sumo) k materias de una carrera con más inscriptos
+     * entre las que empiezan con prefijo, de mayor a menor cantidad de
+     * inscriptos y, a igual cantidad, por nombre. Usa las cotas de inscriptos
+     * que mantiene inscribir, así que no recorre todo el subárbol del prefijo.
+     *
+     * @Complejidad: O(|c| + |prefijo| + e log e), con e las entradas que
+     *               explora la búsqueda (ver Trie#mejores).
+     *
+     * @see DiccionarioString#mejores
+     */
+    public String[] materiasMasInscriptas(String carrera, String prefijo, int k) {
+        long inicio = metricas.iniciar(Operacion.MATERIAS_MAS_INSCRIPTAS);
+        try {
+            long stamp = catalogo.readLock();
+            try {
+                return carreras.obtener(carrera).mejores(prefijo, k, Materia::cantidadInscriptos);
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        } finally {
+            metricas.registrar(Operacion.MATERIAS_MAS_INSCRIPTAS, inicio);
+        }
+    }
+
+    /**
+     * Como materiasMasInscriptas(carrera, prefijo, k) pero sobre todas las
+     * carreras: toma las k mejores de cada carrera y se queda con las k mejores
+     * del total (a igual cantidad de inscriptos, por carrera y luego por
+     * materia).
+     *
+     * @Complejidad: O(Σ|c| + cantidad de carreras * (|prefijo| + e log e) +
+     *               r log r), con r las candidatas reunidas (a lo sumo k por
+     *               carrera).
+     */
+    public ParCarreraMateria[] materiasMasInscriptas(String prefijo, int k) {
+        long inicio = metricas.iniciar(Operacion.MATERIAS_MAS_INSCRIPTAS);
+        try {
+            long stamp = catalogo.readLock();
+            try {
+                ArrayList<Tupla<Integer, ParCarreraMateria>> candidatas = new ArrayList<>();
+                CursorDiccionario<DiccionarioString<Materia>> c = carreras.cursor();
+                while (c.avanzar()) {
+                    DiccionarioString<Materia> carrera = c.valor();
+                    for (String nombre : carrera.mejores(prefijo, k, Materia::cantidadInscriptos)) {
+                        candidatas.add(new Tupla<>(carrera.obtener(nombre).cantidadInscriptos(),
+                                new ParCarreraMateria(c.clave(), nombre)));
+                    }
+                }
+                // el orden del cursor ya deja las candidatas por carrera y materia
+                // dentro de cada cantidad, y el ordenamiento es estable
+                candidatas.sort((a, b) -> Integer.compare(b.fst(), a.fst()));
+                ParCarreraMateria[] res = new ParCarreraMateria[Math.min(k, candidatas.size())];
+                for (int i = 0; i < res.length; i++) {
+                    res[i] = candidatas.get(i).snd();
+                }
+                return res;
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        } finally {
+            metricas.registrar(Operacion.MATERIAS_MAS_INSCRIPTAS, inicio);
+        }
+    }
+
+    private static String[] claves(CursorDiccionario<?> c) {
+        ArrayList<String> res = new ArrayList<>();
+        while (c.avanzar()) {
+            res.add(c.clave());
+        }
+        return res.toArray(new String[0]);
+    }
+
+    /**
+     * Devuelve las materias en las que está inscripto un estudiante, cada una
+     * con todos sus nombres (carrera, materia), ordenadas por su primer nombre.
+     *
+     * @Complejidad: O(|estudiante| + Σ(|c| + |m|) sobre los nombres de sus
+     *               materias).
+     *
+     * @see Libreta#materias
+     */
+    public InfoMateria[] materiasDe(String estudiante) {
+        long inicio = metricas.iniciar(Operacion.MATERIAS_DE);
+        try {
+            Libreta libreta = libretas[materiasEstudiante.posicion(estudiante)];
+            long stamp = catalogo.readLock();
+            try {
+                ArrayList<InfoMateria> res = new ArrayList<>();
+                for (Materia mat : libreta.materias()) {
+                    if (mat.estaCerrada()) {
+                        continue; // se está cerrando y todavía figura en la libreta
+                    }
+                    res.add(info(mat));
+                }
+                res.sort(Comparator.comparing((InfoMateria info) -> info.getParesCarreraMateria()[0].getCarrera())
+                        .thenComparing(info -> info.getParesCarreraMateria()[0].getNombreMateria()));
+                return res.toArray(new InfoMateria[0]);
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        } finally {
+            metricas.registrar(Operacion.MATERIAS_DE, inicio);
+        }
+    }
+
+    /**
+     * Devuelve los nombres (carrera, materia) de mat. Necesita el catálogo
+     * tomado en modo lectura.
+     *
+     * @Complejidad: O(Σ(|c| + |m|)) sobre los nombres de mat.
+     */
+    private InfoMateria info(Materia mat) {
+        ArrayList<Tupla<DiccionarioString<Materia>, String>> alias = mat.nombresEnCarreras();
+        ParCarreraMateria[] pares = new ParCarreraMateria[alias.size()];
+        for (int i = 0; i < pares.length; i++) {
+            pares[i] = new ParCarreraMateria(nombresCarreras.get(alias.get(i).fst()), alias.get(i).snd());
+        }
+        return new InfoMateria(pares);
+    }
+
+    /**
+     * Devuelve las (a lo sumo) k materias que más exceden su cupo, de mayor a
+     * menor exceso (inscriptos - cupo), cada una con todos sus nombres
+     * (carrera, materia). A igual exceso no hay un orden definido. Con k mayor
+     * o igual a la cantidad de materias excedidas, las devuelve todas. No
+     * recorre el catálogo: las materias excedidas se mantienen al inscribir,
+     * desinscribir, agregar docentes y cerrar.
+     *
+     * @Complejidad: O(k log k + Σ(|c| + |m|) sobre los nombres de las materias
+     *               devueltas).
+     *
+     * @see MateriasExcedidas#mayores
+     */
+    public InfoMateria[] materiasExcedidas(int k) {
+        long inicio = metricas.iniciar(Operacion.MATERIAS_EXCEDIDAS);
+        try {
+            long stamp = catalogo.readLock();
+            try {
+                Materia[] mayores = excedidas.mayores(k);
+                ArrayList<InfoMateria> res = new ArrayList<>(mayores.length);
+                for (Materia mat : mayores) {
+                    if (!mat.estaCerrada()) {
+                        res.add(info(mat)); // si no, se cerró después de tomar las mayores
+                    }
+                }
+                return res.toArray(new InfoMateria[0]);
+            } finally {
+                catalogo.unlockRead(stamp);
+            }
+        } finally {
+            metricas.registrar(Operacion.MATERIAS_EXCEDIDAS, inicio);
+        }
     }
 
     /**
      * Devuelve la cantidad de materias en las que está inscripto un estudiante.
+     * Si hubo cierres desde la última consulta, primero reconcilia su libreta
+     * y descuenta del contador las materias cerradas.
      *
-     * @Complejidad: O(1). En ese caso es O(1). pues la longitud de la clave
-     *               (LU) es constante para cualquier estudiante.
+     * @Complejidad: O(1) si no hubo cierres desde la última vez; si no,
+     *               O(materias del estudiante). La longitud de la clave (LU) es
+     *               constante para cualquier estudiante.
      *
-     * @see Trie#obtener
+     * @see Libreta#reconciliar
      */
     public int materiasInscriptas(String estudiante) {
-        return materiasEstudiante.obtener(estudiante);
+        long inicio = metricas.iniciar(Operacion.MATERIAS_INSCRIPTAS);
+        try {
+            int id = materiasEstudiante.posicion(estudiante);
+            long epoca = cierres.get();
+            Libreta libreta = libretas[id];
+            if (libreta.epoca() < epoca) {
+                libreta.reconciliar(epoca, descartadas -> materiasEstudiante.sumarEnPosicion(id, -descartadas));
+            }
+            return materiasEstudiante.obtenerEnPosicion(id);
+        } finally {
+            metricas.registrar(Operacion.MATERIAS_INSCRIPTAS, inicio);
+        }
     }
 }
@@ -1,16 +1,33 @@
 package aed;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 
 /**
  * Implementación de un Trie. Representa un diccionario de claves de tipo String
  * y valores de tipo V.
  *
+ * Las claves se guardan codificadas en UTF-8: cada arista lleva un byte, así
+ * que cualquier caracter (comillas tipográficas, letras de otros alfabetos) se
+ * puede usar sin agrandar los nodos más allá de 256 hijos. Cada operación
+ * codifica su clave una sola vez y recorre el arreglo de bytes. El orden de
+ * los bytes UTF-8 es el de los code points, que coincide con el de
+ * String.compareTo salvo entre caracteres fuera del BMP y los de
+ * U+E000..U+FFFF. Las claves deben ser texto Unicode válido (un surrogate
+ * suelto se codifica como '?').
+ *
  * aux cantHijosDefinidos(n: Trie.Nodo): int = if (n != null) then ((if n.valor
  * != null then 1 else 0) + ΣcantHijosDefinidos(n.hijos[i])) else 0
  *
- * pred unicidadDeHijos(n: Trie.Nodo) { ∀ i, j ∈ [0, n.hijos.size()). i != j ^
+ * pred unicidadDeHijos(n: Trie.Nodo) { ∀ i, j ∈ [0, n.posiciones()). i != j ^
  * n.hijos[i], n.hijos[j] !== null => n.hijos[i] != n.hijos[j]}
  *
  * pred noCompartenHijos(n: Trie.Nodo, p: Trie.Nodo) { (Set(n.hijos) \ {null}) ∩
@@ -25,36 +42,257 @@ import java.util.function.Function;
  * aux nodos(t:Trie, n: Trie.Nodo): Conj<Trie.nodo> = (if (n != null and n !=
  * t.root) then {n} else {}) U nodos(t, n.hijos[i])
  *
+ * pred nodoAdaptativo(n: Trie.Nodo) { 0 <= n.cantHijos <= 256 ^ (n.hijos = null
+ * <=> n.cantHijos = 0) ^ (n.claves != null => (n.claves.length = n.hijos.length
+ * ^ n.cantHijos <= n.hijos.length <= MAX_COMPACTO ^ n.claves[0..n.cantHijos)
+ * ordenado estrictamente como bytes sin signo ^ ∀ i ∈ [0, n.cantHijos). n.hijos[i] != null)) ^
+ * ((n.hijos != null ^ n.claves = null) => (n.hijos.length = 256 ^ n.cantHijos =
+ * |Set(n.hijos) \ {null}|)) }
+ *
+ * pred cotaValida(n: Trie.Nodo) { ∀ m en el subárbol de n. m.significado !=
+ * null => puntaje(m.significado) <= n.cota } (puntaje es el que el usuario
+ * acota con elevarCota)
+ *
  * @InvRep(Trie t) = { 
  * 						t.root != null && t.size >= 0 &&
+ * 						∀ Nodo n in nodos(t,t.root) ∪ {t.root}: cotaValida(n) &&
  * 						t.size == cantHijosDefinidos(t.root) &&
- * 						∀ Nodo n in nodos(t,t.root): (n.hijos.size() = 256 ^ unicidadDeHijos(n)) &&
+ * 						∀ Nodo n in nodos(t,t.root): (nodoAdaptativo(n) ^ unicidadDeHijos(n)) &&
  * 						∀ Nodo n, Nodo p in nodos(t,t.root). n != p => noCompartenHijos(n,p) &&
  * 						(Set(t.root.hijos) != {null}) => noTieneRamasInutiles(t))
  * 					}
  */
-public class Trie<V> implements Diccionario<String, V> {
+public class Trie<V> implements DiccionarioString<V> {
+
+    // Cantidad de hijos a partir de la cual un nodo deja de guardar sus
+    // etiquetas ordenadas y pasa a indexar directamente por byte.
+    private static final int MAX_COMPACTO = 48;
+    private static final int ALFABETO = 256;
+    private static final byte[] SIN_BYTES = new byte[0];
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<Trie.Nodo> COTA = AtomicIntegerFieldUpdater
+            .newUpdater(Trie.Nodo.class, "cota");
 
     Nodo root = new Nodo(null);
     int size = 0;
 
+    /**
+     * Nodo adaptativo: mientras tiene pocos hijos los guarda en arreglos
+     * ordenados por etiqueta (`claves[i]` es la etiqueta de `hijos[i]`), que
+     * crecen al doble a medida que se agregan hijos. Al superar MAX_COMPACTO
+     * hijos se convierte en un arreglo de 256 posiciones indexado por byte
+     * (`claves == null`). Un nodo sin hijos no reserva ningún arreglo.
+     * `cota` acota el puntaje de todas las definiciones del subárbol (ver
+     * elevarCota).
+     */
     private class Nodo {
 
         V significado;
-        ArrayList<Nodo> hijos;
+        byte[] claves;
+        Nodo[] hijos;
+        int cantHijos;
+        volatile int cota;
 
         public Nodo(V val) {
             significado = val;
-            hijos = new ArrayList<>(256);
-            for (int i = 0; i < 256; i++) {
-                hijos.add(null);
+        }
+
+        /**
+         * Devuelve el hijo con etiqueta c (un byte, entre 0 y 255), o null si
+         * no existe.
+         *
+         * @Complejidad: O(1). A lo sumo log(MAX_COMPACTO) comparaciones.
+         */
+        Nodo hijo(int c) {
+            if (hijos == null) {
+                return null;
+            }
+            if (claves == null) {
+                return hijos[c];
+            }
+            int i = posicion(c);
+            return i >= 0 ? hijos[i] : null;
+        }
+
+        /**
+         * Define n como hijo con etiqueta c (que no debe existir).
+         *
+         * @Complejidad: O(1). A lo sumo MAX_COMPACTO movimientos, o 256 al
+         * pasar a la representación directa.
+         */
+        void agregarHijo(int c, Nodo n) {
+            if (hijos == null) {
+                claves = new byte[2];
+                hijos = nuevosNodos(2);
+            }
+            if (claves == null) {
+                hijos[c] = n;
+                cantHijos++;
+                return;
+            }
+            if (cantHijos == MAX_COMPACTO) {
+                Nodo[] directos = nuevosNodos(ALFABETO);
+                for (int i = 0; i < cantHijos; i++) {
+                    directos[claves[i] & 0xFF] = hijos[i];
+                }
+                directos[c] = n;
+                claves = null;
+                hijos = directos;
+                cantHijos++;
+                return;
+            }
+            if (cantHijos == hijos.length) {
+                int capacidad = Math.min(hijos.length * 2, MAX_COMPACTO);
+                claves = Arrays.copyOf(claves, capacidad);
+                hijos = Arrays.copyOf(hijos, capacidad);
+            }
+            int i = -(posicion(c) + 1);
+            System.arraycopy(claves, i, claves, i + 1, cantHijos - i);
+            System.arraycopy(hijos, i, hijos, i + 1, cantHijos - i);
+            claves[i] = (byte) c;
+            hijos[i] = n;
+            cantHijos++;
+        }
+
+        /**
+         * Quita el hijo con etiqueta c, si existe. Al quedar sin hijos se
+         * liberan los arreglos.
+         *
+         * @Complejidad: O(1). A lo sumo MAX_COMPACTO movimientos.
+         */
+        void quitarHijo(int c) {
+            if (hijos == null) {
+                return;
+            }
+            if (claves == null) {
+                if (hijos[c] == null) {
+                    return;
+                }
+                hijos[c] = null;
+            } else {
+                int i = posicion(c);
+                if (i < 0) {
+                    return;
+                }
+                System.arraycopy(claves, i + 1, claves, i, cantHijos - i - 1);
+                System.arraycopy(hijos, i + 1, hijos, i, cantHijos - i - 1);
+                hijos[cantHijos - 1] = null;
+            }
+            cantHijos--;
+            if (cantHijos == 0) {
+                claves = null;
+                hijos = null;
+            }
+        }
+
+        /**
+         * Cantidad de posiciones a recorrer en `hijos` para visitar todos los
+         * hijos en orden de etiqueta. En la representación directa algunas
+         * posiciones pueden ser null.
+         */
+        int posiciones() {
+            if (hijos == null) {
+                return 0;
+            }
+            return claves == null ? hijos.length : cantHijos;
+        }
+
+        int etiqueta(int p) {
+            return claves == null ? p : claves[p] & 0xFF;
+        }
+
+        /**
+         * Búsqueda binaria de c en claves[0..cantHijos). Si no está devuelve
+         * -(punto de inserción) - 1.
+         */
+        private int posicion(int c) {
+            int lo = 0;
+            int hi = cantHijos - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int k = claves[mid] & 0xFF;
+                if (k < c) {
+                    lo = mid + 1;
+                } else if (k > c) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
             }
+            return -(lo + 1);
         }
     }
 
     public Trie() {
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Nodo[] nuevosNodos(int n) {
+        return (Nodo[]) new Trie.Nodo[n];
+    }
+
+    /**
+     * Construye un Trie con las claves claves[i] y significados
+     * significado.apply(i), repartiendo el trabajo en el pool. Las claves se
+     * agrupan por su primer byte y cada grupo se inserta en un Trie propio
+     * en una tarea aparte; como los grupos no comparten ningún nodo, al final
+     * basta con colgar los hijos de cada raíz parcial de la raíz del resultado.
+     *
+     * requiere {las claves son distintas y no vacías}
+     *
+     * @Complejidad: O(Σ|k|) de trabajo total, O(|claves| + 256 + mayor Σ|k| de
+     * un grupo) de tiempo con suficientes hilos.
+     */
+    public static <V> Trie<V> construirEnParalelo(String[] claves, IntFunction<V> significado,
+            ForkJoinPool pool) {
+        byte[][] bytes = new byte[claves.length][];
+        int[] cuenta = new int[ALFABETO];
+        for (int i = 0; i < claves.length; i++) {
+            bytes[i] = codificar(claves[i]);
+            cuenta[bytes[i][0] & 0xFF]++;
+        }
+        int[][] grupos = new int[ALFABETO][];
+        for (int c = 0; c < ALFABETO; c++) {
+            grupos[c] = new int[cuenta[c]];
+            cuenta[c] = 0;
+        }
+        for (int i = 0; i < claves.length; i++) {
+            int c = bytes[i][0] & 0xFF;
+            grupos[c][cuenta[c]++] = i;
+        }
+        Trie<V>[] partes = nuevosTries(ALFABETO);
+        ArrayList<ForkJoinTask<?>> tareas = new ArrayList<>();
+        for (int c = 0; c < ALFABETO; c++) {
+            if (grupos[c].length == 0) {
+                continue;
+            }
+            int[] grupo = grupos[c];
+            Trie<V> parte = new Trie<>();
+            partes[c] = parte;
+            tareas.add(ForkJoinTask.adapt(() -> {
+                for (int i : grupo) {
+                    parte.definir(bytes[i], significado.apply(i));
+                }
+            }));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tareas)));
+
+        Trie<V> res = new Trie<>();
+        for (int c = 0; c < ALFABETO; c++) {
+            if (partes[c] != null) {
+                res.root.agregarHijo(c, partes[c].root.hijo(c));
+                res.size += partes[c].size;
+            }
+        }
+        return res;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <V> Trie<V>[] nuevosTries(int n) {
+        return new Trie[n];
+    }
+
     /**
      * Verifica si la clave k está en el Trie.
      *
@@ -66,19 +304,11 @@ public class Trie<V> implements Diccionario<String, V> {
      */
     @Override
     public boolean esta(String k) {
-        Nodo actual = root;
         if (root == null || k.equals("")) {
             return false;
         }
-        for (int i = 0; i < k.length(); i++) {
-            char c = k.charAt(i);
-            int index = (int) c;
-            if (actual.hijos.get(index) == null) {
-                return false;
-            }
-            actual = actual.hijos.get(index);
-        }
-        return actual.significado != null;
+        Nodo n = nodo(k);
+        return n != null && n.significado != null;
     }
 
     /**
@@ -93,14 +323,19 @@ public class Trie<V> implements Diccionario<String, V> {
         if (k.equals("")) {
             return;
         }
+        definir(codificar(k), value);
+    }
+
+    private void definir(byte[] k, V value) {
         Nodo actual = root;
-        for (int i = 0; i < k.length(); i++) {
-            char c = k.charAt(i);
-            int index = (int) c;
-            if (actual.hijos.get(index) == null) {
-                actual.hijos.set(index, new Nodo(null));
+        for (int i = 0; i < k.length; i++) {
+            int index = k[i] & 0xFF;
+            Nodo siguiente = actual.hijo(index);
+            if (siguiente == null) {
+                siguiente = new Nodo(null);
+                actual.agregarHijo(index, siguiente);
             }
-            actual = actual.hijos.get(index);
+            actual = siguiente;
         }
         actual.significado = value;
         size++;
@@ -115,62 +350,62 @@ public class Trie<V> implements Diccionario<String, V> {
      */
     @Override
     public V obtener(String k) {
-        Nodo actual = root;
-        for (int i = 0; i < k.length(); i++) {
-            char c = k.charAt(i);
-            int index = (int) c;
-            actual = actual.hijos.get(index);
-        }
-        return actual.significado;
+        return nodo(k).significado;
+    }
+
+    /**
+     * Obtiene el significado de la clave k, o null si k no está definida.
+     *
+     * @Complejidad: O(|k|).
+     *
+     * @see DiccionarioString#buscar
+     */
+    @Override
+    public V buscar(String k) {
+        Nodo n = nodo(k);
+        return n == null ? null : n.significado;
     }
 
     /**
      * Borra la clave k del Trie.
      *
-     * @Complejidad: O(|k|). Siempre realiza |k| * c operaciones(c es la
-     * cantidad de comparaciones, retornos, etc... que se realizan en cada
-     * llamada iterativa - ver `borrar(Nodo,String,int)` ).
+     * @Complejidad: O(|k|). Baja una vez guardando el camino en una pila y lo
+     * recorre de vuelta quitando los nodos que quedaron sin significado ni
+     * hijos; se detiene en el primero que hay que conservar. Cada nodo sabe
+     * cuántos hijos tiene, así que preguntar si quedó vacío es O(1), y no hay
+     * recursión aunque la clave sea muy larga.
      *
      * @see Diccionario#borrar
      */
     @Override
     public void borrar(String k) {
-        this.root = borrar(root, k, 0);
-        size--;
-    }
-
-    private Nodo borrar(Nodo root, String key, int profundidad) {
-        if (root == null) {
-            return null;
-        }
-        if (profundidad == key.length()) {
-            root.significado = null;
-        } else {
-            char c = key.charAt(profundidad);
-            int index = (int) c;
-            root.hijos.set(index, borrar(root.hijos.get(index), key, profundidad + 1));
-        }
-        if (root.significado != null) {
-            return root;
+        byte[] bytes = codificar(k);
+        Nodo[] camino = nuevosNodos(bytes.length + 1);
+        Nodo actual = root;
+        camino[0] = actual;
+        for (int i = 0; i < bytes.length; i++) {
+            actual = actual.hijo(bytes[i] & 0xFF);
+            camino[i + 1] = actual;
         }
-        if (noTieneHijos(root)) {
-            root = null;
+        actual.significado = null;
+        // la raíz se conserva aunque quede vacía
+        for (int i = bytes.length; i > 0; i--) {
+            Nodo n = camino[i];
+            if (n.significado != null || !noTieneHijos(n)) {
+                break;
+            }
+            camino[i - 1].quitarHijo(bytes[i - 1] & 0xFF);
         }
-        return root;
+        size--;
     }
 
     /**
      * Verifica si el nodo no tiene hijos.
      *
-     * @Complejidad: O(1). Pues el for se ejecuta solo 26 veces. O(26) = O(1).
+     * @Complejidad: O(1). El nodo lleva la cuenta de sus hijos.
      */
     private boolean noTieneHijos(Nodo n) {
-        for (int i = 0; i < n.hijos.size(); i++) {
-            if (n.hijos.get(i) != null) {
-                return false;
-            }
-        }
-        return true;
+        return n.cantHijos == 0;
     }
 
     /**
@@ -185,6 +420,35 @@ public class Trie<V> implements Diccionario<String, V> {
         return size;
     }
 
+    /**
+     * Cuenta los nodos, incluida la raíz.
+     *
+     * @Complejidad: O(cantidad de nodos * 256) en el peor caso: los nodos con
+     * representación directa se recorren enteros.
+     *
+     * @see DiccionarioString#nodos
+     */
+    @Override
+    public int nodos() {
+        int res = 0;
+        ArrayList<Nodo> pendientes = new ArrayList<>();
+        pendientes.add(root);
+        while (!pendientes.isEmpty()) {
+            Nodo n = pendientes.remove(pendientes.size() - 1);
+            res++;
+            if (n.hijos == null) {
+                continue;
+            }
+            int hasta = n.claves == null ? n.hijos.length : n.cantHijos;
+            for (int i = 0; i < hasta; i++) {
+                if (n.hijos[i] != null) {
+                    pendientes.add(n.hijos[i]);
+                }
+            }
+        }
+        return res;
+    }
+
     /**
      * Redefine el valor de la clave k con el resultado de aplicar la función f
      * al valor actual.
@@ -197,70 +461,402 @@ public class Trie<V> implements Diccionario<String, V> {
      * @Complejidad: O(|k|) + O(f). [O(f) es el costo de computar f, no la cota
      * asintotica de f]
      */
+    @Override
     public void modificar(String k, Function<V, V> f) {
+        Nodo n = nodo(k);
+        n.significado = f.apply(n.significado);
+    }
+
+    /**
+     * Devuelve un cursor sobre las definiciones del Trie, en orden
+     * lexicográfico.
+     *
+     * @Complejidad: O(1). Recorrer todo el Trie con el cursor es O(Σ|k|), y
+     * sólo se crean los Strings de las claves que se piden.
+     *
+     * @see DiccionarioString#cursor
+     */
+    @Override
+    public CursorDiccionario<V> cursor() {
+        return new CursorTrie(root, SIN_BYTES);
+    }
+
+    /**
+     * Devuelve un cursor sobre las definiciones con el prefijo dado, en orden
+     * lexicográfico. Baja una sola vez hasta el nodo del prefijo y recorre sólo
+     * su subárbol.
+     *
+     * @Complejidad: O(|prefijo|). Recorrer el resultado es O(Σ|k|) sobre las
+     * claves con el prefijo.
+     *
+     * @see DiccionarioString#cursorConPrefijo
+     */
+    @Override
+    public CursorDiccionario<V> cursorConPrefijo(String prefijo) {
+        byte[] bytes = codificar(prefijo);
+        return new CursorTrie(nodo(bytes), bytes);
+    }
+
+    /**
+     * Devuelve el nodo al que lleva la clave k, o null si no existe. Recorre
+     * los bytes UTF-8 de k a medida que los calcula, sin codificarla.
+     *
+     * @Complejidad: O(|k|). No reserva memoria.
+     */
+    private Nodo nodo(String k) {
         Nodo actual = root;
-        for (int i = 0; i < k.length(); i++) {
-            char c = k.charAt(i);
-            int index = (int) c;
-            actual = actual.hijos.get(index);
+        int cp;
+        for (int i = 0; i < k.length() && actual != null; i += Character.charCount(cp)) {
+            cp = puntoDeCodigo(k, i);
+            int largo = largoUtf8(cp);
+            for (int j = 0; j < largo && actual != null; j++) {
+                actual = actual.hijo(byteUtf8(cp, largo, j));
+            }
         }
-        actual.significado = f.apply(actual.significado);
+        return actual;
     }
 
     /**
-     * Retorna las claves del Trie. Las claves se retornan en un arreglo de
-     * Strings ordenadas lexicograficamente [Esto es asi ya que accede y agrega
-     * antes al array respuesta los hijos de mas a la izquierda, que por
-     * definicion son los mayores lexicograficamente (Menor valor ASCII)]
+     * Devuelve el nodo al que lleva la clave k (ya codificada), o null si no
+     * existe.
      *
-     * @Complejidad: Realiza 256 operaciones por cada nodo del Trie, y puede
-     * llegar a haber tantos nodos como caracteres en las claves. Luego la
-     * complejidad es O(256 * Σ|k|) = O(Σ|k|).
+     * @Complejidad: O(|k|).
      */
-    public String[] keys() {
-        String keys[] = new String[this.size];
-        Wrapper<Integer> index = new Wrapper<>(0);
-        return keys(root, "", keys, index);
+    private Nodo nodo(byte[] k) {
+        Nodo actual = root;
+        for (int i = 0; i < k.length && actual != null; i++) {
+            actual = actual.hijo(k[i] & 0xFF);
+        }
+        return actual;
     }
 
-    private String[] keys(Nodo actual, String key, String[] keys, Wrapper<Integer> index) {
-        if (actual == null) {
-            return keys;
+    /**
+     * Codifica la clave k en UTF-8.
+     *
+     * @Complejidad: O(|k|).
+     */
+    static byte[] codificar(String k) {
+        return k.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Devuelve el code point de k que empieza en la posición i, tal como lo
+     * codifica `codificar`: un surrogate sin su pareja se codifica como '?'.
+     * La posición siguiente es i + Character.charCount(resultado).
+     *
+     * @Complejidad: O(1).
+     */
+    static int puntoDeCodigo(String k, int i) {
+        char c = k.charAt(i);
+        if (!Character.isSurrogate(c)) {
+            return c;
+        }
+        if (Character.isHighSurrogate(c) && i + 1 < k.length() && Character.isLowSurrogate(k.charAt(i + 1))) {
+            return Character.toCodePoint(c, k.charAt(i + 1));
+        }
+        return '?';
+    }
+
+    /**
+     * Devuelve cuántos bytes ocupa el code point cp en UTF-8 (de 1 a 4).
+     *
+     * @Complejidad: O(1).
+     */
+    static int largoUtf8(int cp) {
+        return cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * Devuelve el byte j (desde 0, entre 0 y 255) de la codificación UTF-8 del
+     * code point cp, que ocupa largo = largoUtf8(cp) bytes.
+     *
+     * @Complejidad: O(1).
+     */
+    static int byteUtf8(int cp, int largo, int j) {
+        if (largo == 1) {
+            return cp;
         }
-        if (actual.significado != null) {
-            keys[index.get()] = key;
-            index.set(index.get() + 1);
+        if (j == 0) {
+            // 110xxxxx, 1110xxxx o 11110xxx
+            return (0xFF00 >> largo) & 0xFF | cp >>> (6 * (largo - 1));
         }
-        for (int i = 0; i < actual.hijos.size(); i++) {
-            if (actual.hijos.get(i) != null) {
-                char c = (char) i;
-                keys(actual.hijos.get(i), key + c, keys, index);
+        return 0x80 | (cp >>> (6 * (largo - 1 - j))) & 0x3F;
+    }
+
+    /**
+     * Compara a y b en el orden de sus bytes UTF-8, que es el de sus code
+     * points y el de los cursores de Trie. Sirve para ordenar las claves de
+     * los diccionarios que no las guardan ordenadas.
+     *
+     * @Complejidad: O(min(|a|, |b|)).
+     */
+    static int comparar(String a, String b) {
+        int i = 0;
+        while (i < a.length() && i < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(i);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
             }
+            i += Character.charCount(ca);
         }
-        return keys;
+        return Integer.compare(a.length() - i, b.length() - i);
     }
 
     /**
-     * Retorna los valores definidos en el Trie.
+     * Devuelve la clave cuya codificación UTF-8 es bytes[0..largo).
      *
-     * @Complejidad: O(Σ|k|). Mismo razonamiento que `keys`.
+     * @Complejidad: O(largo).
      */
-    public ArrayList<V> values() {
-        ArrayList<V> values = new ArrayList<>();
-        return values(root, values);
+    static String decodificar(byte[] bytes, int largo) {
+        return new String(bytes, 0, largo, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Recorrido en preorden con una pila explícita. En la pila se guarda, para
+     * cada nodo del camino desde la raíz, la próxima posición de hijo a visitar
+     * (o POR_VISITAR si todavía no se consideró el propio nodo). La etiqueta
+     * del hijo elegido en el nivel i queda en buffer[largoPrefijo + i], detrás
+     * de los bytes del prefijo del nodo inicial, así que la clave del nodo en
+     * el tope es la decodificación de buffer[0..largoPrefijo+tope-1).
+     */
+    private class CursorTrie implements CursorDiccionario<V> {
+
+        private static final int POR_VISITAR = -1;
+
+        private final int largoPrefijo;
+        private Nodo[] nodos;
+        private int[] proximas = new int[16];
+        private byte[] buffer;
+        private int tope = 0;
+        private Nodo actual = null;
+        private String clave = null;
+
+        CursorTrie(Nodo inicio, byte[] prefijo) {
+            largoPrefijo = prefijo.length;
+            buffer = Arrays.copyOf(prefijo, largoPrefijo + 16);
+            nodos = nuevosNodos(16);
+            if (inicio != null) {
+                nodos[0] = inicio;
+                proximas[0] = POR_VISITAR; // el nodo del prefijo puede ser una clave
+                tope = 1;
+            }
+        }
+
+        @Override
+        public boolean avanzar() {
+            clave = null;
+            while (tope > 0) {
+                int t = tope - 1;
+                Nodo n = nodos[t];
+                if (proximas[t] == POR_VISITAR) {
+                    proximas[t] = 0;
+                    if (n.significado != null) {
+                        actual = n;
+                        return true;
+                    }
+                }
+                int p = proximas[t];
+                while (p < n.posiciones() && n.hijos[p] == null) {
+                    p++;
+                }
+                if (p >= n.posiciones()) {
+                    tope--;
+                    continue;
+                }
+                proximas[t] = p + 1;
+                if (tope == nodos.length) {
+                    nodos = Arrays.copyOf(nodos, tope * 2);
+                    proximas = Arrays.copyOf(proximas, tope * 2);
+                    buffer = Arrays.copyOf(buffer, largoPrefijo + tope * 2);
+                }
+                buffer[largoPrefijo + t] = (byte) n.etiqueta(p);
+                nodos[tope] = n.hijos[p];
+                proximas[tope] = POR_VISITAR;
+                tope++;
+            }
+            actual = null;
+            return false;
+        }
+
+        @Override
+        public String clave() {
+            if (clave == null) {
+                clave = decodificar(buffer, largoPrefijo + tope - 1);
+            }
+            return clave;
+        }
+
+        @Override
+        public V valor() {
+            return actual.significado;
+        }
+    }
+
+    /**
+     * Eleva a cota la cota de cada nodo del camino de k, incluida la raíz. Si
+     * k no está en el Trie no hace falta elevar nada más allá de donde se
+     * corta el camino.
+     *
+     * @Complejidad: O(|k|). Un nodo sólo se escribe (con CAS) si su cota era
+     * menor, así que en general es una lectura por nivel.
+     *
+     * @see DiccionarioString#elevarCota
+     */
+    @Override
+    public void elevarCota(String k, int cota) {
+        Nodo actual = root;
+        elevarCota(actual, cota);
+        int cp;
+        for (int i = 0; i < k.length() && actual != null; i += Character.charCount(cp)) {
+            cp = puntoDeCodigo(k, i);
+            int largo = largoUtf8(cp);
+            for (int j = 0; j < largo && actual != null; j++) {
+                actual = actual.hijo(byteUtf8(cp, largo, j));
+                if (actual != null) {
+                    elevarCota(actual, cota);
+                }
+            }
+        }
+    }
+
+    private void elevarCota(Nodo n, int cota) {
+        int v;
+        while ((v = n.cota) < cota && !COTA.compareAndSet(n, v, cota)) {
+        }
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see DiccionarioString#cota
+     */
+    @Override
+    public int cota(String k) {
+        Nodo n = nodo(k);
+        return n == null ? 0 : n.cota;
     }
 
-    private ArrayList<V> values(Nodo actual, ArrayList<V> values) {
-        if (actual == null) {
-            return values;
+    /**
+     * Devuelve las k claves con el prefijo de mayor puntaje. Es una búsqueda
+     * primero-el-mejor desde el nodo del prefijo: la cola tiene subárboles,
+     * ordenados por su cota, y definiciones, ordenadas por su puntaje. Cuando
+     * sale de la cola una definición, nada de lo que queda puede superarla, así
+     * que va a la respuesta. Sólo se abren los subárboles cuya cota alcanza a
+     * las k mejores, no todo el subárbol del prefijo.
+     *
+     * @Complejidad: O(|prefijo| + e log e), con e la cantidad de entradas que
+     * se llegan a encolar. Con cotas ajustadas e es O(k * profundidad *
+     * hijos por nodo); en el peor caso (cotas muy por encima de los puntajes)
+     * degenera en recorrer el subárbol.
+     *
+     * @see DiccionarioString#mejores
+     */
+    @Override
+    public String[] mejores(String prefijo, int k, ToIntFunction<V> puntaje) {
+        byte[] bytes = codificar(prefijo);
+        Nodo inicio = nodo(bytes);
+        if (inicio == null || k <= 0) {
+            return new String[0];
+        }
+        ArrayList<String> res = new ArrayList<>(k);
+        PriorityQueue<Candidato> cola = new PriorityQueue<>();
+        cola.add(new Candidato(inicio, bytes, inicio.cota));
+        while (!cola.isEmpty() && res.size() < k) {
+            Candidato c = cola.poll();
+            Nodo n = c.nodo;
+            if (n == null) {
+                res.add(decodificar(c.clave, c.clave.length));
+                continue;
+            }
+            if (n.significado != null) {
+                cola.add(new Candidato(null, c.clave, puntaje.applyAsInt(n.significado)));
+            }
+            for (int p = 0; p < n.posiciones(); p++) {
+                Nodo h = n.hijos[p];
+                if (h != null) {
+                    cola.add(new Candidato(h, extender(c.clave, n.etiqueta(p)), h.cota));
+                }
+            }
         }
-        if (actual.significado != null) {
-            values.add(actual.significado);
+        return res.toArray(new String[0]);
+    }
+
+    /**
+     * Devuelve una copia de bytes con el byte b agregado al final.
+     *
+     * @Complejidad: O(|bytes|).
+     */
+    static byte[] extender(byte[] bytes, int b) {
+        byte[] res = Arrays.copyOf(bytes, bytes.length + 1);
+        res[bytes.length] = (byte) b;
+        return res;
+    }
+
+    /**
+     * Entrada de la cola de `mejores`: un subárbol (nodo != null) con su cota
+     * o una definición (nodo == null) con su puntaje, con la clave codificada.
+     * Sale primero el de mayor valor; a igual valor, el de menor clave (como
+     * bytes sin signo, el orden del cursor), y a igual clave la definición
+     * antes que el subárbol. Como toda clave de un subárbol empieza con la del
+     * nodo, con este orden las definiciones salen en el orden de `mejores`.
+     */
+    private class Candidato implements Comparable<Candidato> {
+        final Nodo nodo;
+        final byte[] clave;
+        final int valor;
+
+        Candidato(Nodo nodo, byte[] clave, int valor) {
+            this.nodo = nodo;
+            this.clave = clave;
+            this.valor = valor;
         }
-        for (int i = 0; i < actual.hijos.size(); i++) {
-            if (actual.hijos.get(i) != null) {
-                values(actual.hijos.get(i), values);
+
+        @Override
+        public int compareTo(Candidato o) {
+            if (valor != o.valor) {
+                return Integer.compare(o.valor, valor);
             }
+            int cmp = Arrays.compareUnsigned(clave, o.clave);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Boolean.compare(nodo != null, o.nodo != null);
+        }
+    }
+
+    /**
+     * Retorna las claves del Trie. Las claves se retornan en un arreglo de
+     * Strings ordenadas lexicograficamente [Esto es asi ya que accede y agrega
+     * antes al array respuesta los hijos de mas a la izquierda, que por
+     * definicion son los mayores lexicograficamente (Menor byte UTF-8)]
+     *
+     * @Complejidad: O(Σ|k|). Recorre el Trie con un cursor, que visita cada
+     * nodo una vez y a lo sumo 256 posiciones de hijos por nodo.
+     *
+     * @see #cursor
+     */
+    @Override
+    public String[] keys() {
+        String keys[] = new String[this.size];
+        CursorDiccionario<V> c = cursor();
+        for (int i = 0; c.avanzar(); i++) {
+            keys[i] = c.clave();
+        }
+        return keys;
+    }
+
+    /**
+     * Retorna los valores definidos en el Trie, en el orden de `keys`.
+     *
+     * @Complejidad: O(Σ|k|). Mismo razonamiento que `keys`.
+     */
+    @Override
+    public ArrayList<V> values() {
+        ArrayList<V> values = new ArrayList<>(this.size);
+        CursorDiccionario<V> c = cursor();
+        while (c.avanzar()) {
+            values.add(c.valor());
         }
         return values;
     }
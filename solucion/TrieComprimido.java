@@ -0,0 +1,714 @@
+package aed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Trie comprimido (radix o Patricia): cada arista lleva como etiqueta una
+ * tira de bytes en lugar de uno solo, así que las cadenas de nodos con un
+ * único hijo y sin significado se guardan en un solo nodo. Nombres largos
+ * como "Algoritmos y Estructuras de Datos II" ocupan unos pocos nodos en
+ * lugar de uno por caracter, y buscarlos compara tramos de la clave con
+ * Arrays.mismatch en lugar de saltar de nodo en nodo. Como Trie, trabaja
+ * sobre la codificación UTF-8 de las claves y las recorre en ese orden.
+ *
+ * aux camino(n: Nodo): byte[] = concatenación de las etiquetas desde la raíz
+ * hasta n
+ *
+ * pred cotaValida(n: Nodo) { ∀ m en el subárbol de n. m.significado != null
+ * => puntaje(m.significado) <= n.cota }
+ *
+ * @InvRep(TrieComprimido t) = {
+ *                          t.raiz != null ^ |t.raiz.etiqueta| = 0 ^
+ *                          t.raiz.significado = null ^
+ *                          ∀ n nodo de t distinto de la raíz. (|n.etiqueta| >= 1 ^
+ *                              (n.significado != null v n.cantHijos >= 2)) ^
+ *                          ∀ n nodo de t. (0 <= n.cantHijos <= |n.hijos| ^
+ *                              n.primeros[i] = n.hijos[i].etiqueta[0] para i < n.cantHijos ^
+ *                              n.primeros[0..n.cantHijos) ordenado estrictamente como bytes
+ *                              sin signo ^ cotaValida(n)) ^
+ *                          t.size = |{n : n.significado != null}|
+ *                          }
+ */
+public class TrieComprimido<V> implements DiccionarioString<V> {
+
+    private static final byte[] SIN_BYTES = new byte[0];
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<TrieComprimido.Nodo> COTA = AtomicIntegerFieldUpdater
+            .newUpdater(TrieComprimido.Nodo.class, "cota");
+
+    private final Nodo raiz = new Nodo(SIN_BYTES, null);
+    private int size = 0;
+
+    /**
+     * Nodo con la etiqueta de la arista que llega a él. Los hijos se guardan
+     * ordenados por el primer byte de su etiqueta, que se repite en
+     * `primeros` para buscar sin desreferenciar cada hijo; dos hijos nunca
+     * empiezan con el mismo byte.
+     */
+    private class Nodo {
+
+        byte[] etiqueta;
+        V significado;
+        byte[] primeros;
+        Nodo[] hijos;
+        int cantHijos;
+        volatile int cota;
+
+        Nodo(byte[] etiqueta, V significado) {
+            this.etiqueta = etiqueta;
+            this.significado = significado;
+        }
+
+        /**
+         * Devuelve el hijo cuya etiqueta empieza con el byte b, o null si no
+         * existe.
+         *
+         * @Complejidad: O(1). A lo sumo log(256) comparaciones.
+         */
+        Nodo hijo(int b) {
+            int i = posicion(b);
+            return i >= 0 ? hijos[i] : null;
+        }
+
+        /**
+         * Agrega n como hijo (ningún otro puede empezar con su primer byte).
+         *
+         * @Complejidad: O(cantHijos).
+         */
+        void agregarHijo(Nodo n) {
+            if (hijos == null) {
+                primeros = new byte[2];
+                hijos = nuevosNodos(2);
+            } else if (cantHijos == hijos.length) {
+                primeros = Arrays.copyOf(primeros, cantHijos * 2);
+                hijos = Arrays.copyOf(hijos, cantHijos * 2);
+            }
+            int i = -(posicion(n.etiqueta[0] & 0xFF) + 1);
+            System.arraycopy(primeros, i, primeros, i + 1, cantHijos - i);
+            System.arraycopy(hijos, i, hijos, i + 1, cantHijos - i);
+            primeros[i] = n.etiqueta[0];
+            hijos[i] = n;
+            cantHijos++;
+        }
+
+        /**
+         * Pone n en el lugar del hijo que empieza con el mismo byte.
+         *
+         * @Complejidad: O(1).
+         */
+        void reemplazarHijo(Nodo n) {
+            hijos[posicion(n.etiqueta[0] & 0xFF)] = n;
+        }
+
+        /**
+         * Quita el hijo que empieza con el byte b. Al quedar sin hijos se
+         * liberan los arreglos.
+         *
+         * @Complejidad: O(cantHijos).
+         */
+        void quitarHijo(int b) {
+            int i = posicion(b);
+            System.arraycopy(primeros, i + 1, primeros, i, cantHijos - i - 1);
+            System.arraycopy(hijos, i + 1, hijos, i, cantHijos - i - 1);
+            hijos[--cantHijos] = null;
+            if (cantHijos == 0) {
+                primeros = null;
+                hijos = null;
+            }
+        }
+
+        /**
+         * Búsqueda binaria de b en primeros[0..cantHijos). Si no está devuelve
+         * -(punto de inserción) - 1.
+         */
+        private int posicion(int b) {
+            int lo = 0;
+            int hi = cantHijos - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int k = primeros[mid] & 0xFF;
+                if (k < b) {
+                    lo = mid + 1;
+                } else if (k > b) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(lo + 1);
+        }
+    }
+
+    public TrieComprimido() {
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Nodo[] nuevosNodos(int n) {
+        return (Nodo[]) new TrieComprimido.Nodo[n];
+    }
+
+    /**
+     * Devuelve el largo del prefijo común entre etiqueta y k[desde..).
+     *
+     * @Complejidad: O(min(|etiqueta|, |k| - desde)).
+     */
+    private static int comun(byte[] etiqueta, byte[] k, int desde) {
+        int largo = Math.min(etiqueta.length, k.length - desde);
+        int i = Arrays.mismatch(etiqueta, 0, largo, k, desde, desde + largo);
+        return i < 0 ? largo : i;
+    }
+
+    private static byte[] concatenar(byte[] a, byte[] b) {
+        byte[] res = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, res, a.length, b.length);
+        return res;
+    }
+
+    /**
+     * Baja por los bytes UTF-8 de k a medida que los calcula, sin codificarla.
+     * Devuelve el nodo al que lleva exactamente k, o null si k se sale del
+     * trie. Si k termina en medio de una arista devuelve el nodo al final de
+     * esa arista cuando hastaFinDeArista (el que tiene en su subárbol las
+     * claves que empiezan con k), o null si no.
+     *
+     * Además eleva a cota la cota de cada nodo del camino (ver elevarCota);
+     * las búsquedas pasan cota = 0, que no eleva nada.
+     *
+     * @Complejidad: O(|k|). No reserva memoria.
+     */
+    private Nodo bajar(String k, boolean hastaFinDeArista, int cota) {
+        Nodo n = raiz;
+        elevarCota(n, cota);
+        // arista por la que se está bajando y cuántos bytes de su etiqueta
+        // ya coincidieron
+        Nodo h = null;
+        int p = 0;
+        int i = 0;
+        while (i < k.length()) {
+            if (h != null) {
+                // compara de a un char mientras sus bytes (1 o 2) entren en la
+                // etiqueta, sin pasar por byteUtf8
+                byte[] etiqueta = h.etiqueta;
+                while (i < k.length()) {
+                    int c = k.charAt(i);
+                    if (c < 0x80 && p < etiqueta.length) {
+                        if (etiqueta[p] != c) {
+                            return null;
+                        }
+                        p++;
+                    } else if (c >= 0x80 && c < 0x800 && p + 1 < etiqueta.length) {
+                        if (etiqueta[p] != (byte) (0xC0 | c >> 6) || etiqueta[p + 1] != (byte) (0x80 | c & 0x3F)) {
+                            return null;
+                        }
+                        p += 2;
+                    } else {
+                        break;
+                    }
+                    i++;
+                }
+                if (p == etiqueta.length) {
+                    n = h;
+                    elevarCota(n, cota);
+                    h = null;
+                    p = 0;
+                    continue;
+                }
+                if (i == k.length()) {
+                    break;
+                }
+            }
+            // un code point que cruza el fin de la arista, o de 3 o 4 bytes
+            int cp = Trie.puntoDeCodigo(k, i);
+            int largo = Trie.largoUtf8(cp);
+            i += Character.charCount(cp);
+            for (int j = 0; j < largo; j++) {
+                int b = Trie.byteUtf8(cp, largo, j);
+                if (h == null) {
+                    h = n.hijo(b);
+                    if (h == null) {
+                        return null;
+                    }
+                } else if ((h.etiqueta[p] & 0xFF) != b) {
+                    return null;
+                }
+                if (++p == h.etiqueta.length) {
+                    n = h;
+                    elevarCota(n, cota);
+                    h = null;
+                    p = 0;
+                }
+            }
+        }
+        if (h == null) {
+            return n;
+        }
+        elevarCota(h, cota);
+        return hastaFinDeArista ? h : null;
+    }
+
+    /**
+     * Devuelve el nodo al que lleva exactamente la clave k (ya codificada), o
+     * null si k termina en medio de una arista o se sale del trie.
+     *
+     * @Complejidad: O(|k|).
+     */
+    private Nodo nodo(byte[] k) {
+        Nodo n = raiz;
+        int i = 0;
+        while (i < k.length) {
+            Nodo h = n.hijo(k[i] & 0xFF);
+            if (h == null || comun(h.etiqueta, k, i) < h.etiqueta.length) {
+                return null;
+            }
+            i += h.etiqueta.length;
+            n = h;
+        }
+        return n;
+    }
+
+    /**
+     * Completa el prefijo p hasta el final de la arista en la que termina: el
+     * resultado es el camino del nodo cuyo subárbol tiene exactamente las
+     * claves que empiezan con p. Devuelve null si ninguna clave empieza con
+     * p.
+     *
+     * @Complejidad: O(|p| + |etiqueta de la última arista|).
+     */
+    private byte[] completar(byte[] p) {
+        Nodo n = raiz;
+        int i = 0;
+        while (i < p.length) {
+            Nodo h = n.hijo(p[i] & 0xFF);
+            if (h == null) {
+                return null;
+            }
+            int c = comun(h.etiqueta, p, i);
+            if (c < h.etiqueta.length) {
+                if (i + c < p.length) {
+                    return null;
+                }
+                return concatenar(Arrays.copyOf(p, i), h.etiqueta);
+            }
+            i += c;
+            n = h;
+        }
+        return p;
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see Diccionario#esta
+     */
+    @Override
+    public boolean esta(String k) {
+        if (k.equals("")) {
+            return false;
+        }
+        Nodo n = bajar(k, false, 0);
+        return n != null && n.significado != null;
+    }
+
+    /**
+     * Define la clave k con el significado value. Si k se separa de una
+     * arista a mitad de camino, la arista se parte en dos con un nodo
+     * intermedio.
+     *
+     * @Complejidad: O(|k| + cantidad de hijos del nodo donde se cuelga la
+     * clave) = O(|k|), con a lo sumo 256 hijos por nodo.
+     *
+     * @see Diccionario#definir
+     */
+    @Override
+    public void definir(String k, V value) {
+        if (k.equals("")) {
+            return;
+        }
+        byte[] bytes = Trie.codificar(k);
+        Nodo n = raiz;
+        int i = 0;
+        while (i < bytes.length) {
+            Nodo h = n.hijo(bytes[i] & 0xFF);
+            if (h == null) {
+                n.agregarHijo(new Nodo(Arrays.copyOfRange(bytes, i, bytes.length), value));
+                size++;
+                return;
+            }
+            int c = comun(h.etiqueta, bytes, i);
+            if (c < h.etiqueta.length) {
+                // el intermedio acota lo mismo que h: su subárbol es el de h
+                Nodo medio = new Nodo(Arrays.copyOf(h.etiqueta, c), null);
+                medio.cota = h.cota;
+                h.etiqueta = Arrays.copyOfRange(h.etiqueta, c, h.etiqueta.length);
+                medio.agregarHijo(h);
+                n.reemplazarHijo(medio);
+                h = medio;
+            }
+            i += c;
+            n = h;
+        }
+        if (n.significado == null) {
+            size++;
+        }
+        n.significado = value;
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see Diccionario#obtener
+     */
+    @Override
+    public V obtener(String k) {
+        return bajar(k, false, 0).significado;
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see DiccionarioString#buscar
+     */
+    @Override
+    public V buscar(String k) {
+        Nodo n = bajar(k, false, 0);
+        return n == null ? null : n.significado;
+    }
+
+    /**
+     * Borra la clave k. Si su nodo queda sin significado ni hijos se quita, y
+     * si un nodo sin significado queda con un solo hijo se fusiona con él,
+     * así que sólo hay que mirar el nodo de k, su padre y su abuelo.
+     *
+     * @Complejidad: O(|k|).
+     *
+     * @see Diccionario#borrar
+     */
+    @Override
+    public void borrar(String k) {
+        byte[] bytes = Trie.codificar(k);
+        Nodo abuelo = null;
+        Nodo padre = null;
+        Nodo n = raiz;
+        int i = 0;
+        while (i < bytes.length) {
+            abuelo = padre;
+            padre = n;
+            n = n.hijo(bytes[i] & 0xFF);
+            i += n.etiqueta.length;
+        }
+        n.significado = null;
+        size--;
+        if (padre == null) {
+            return; // la raíz se conserva
+        }
+        if (n.cantHijos == 0) {
+            padre.quitarHijo(n.etiqueta[0] & 0xFF);
+            if (abuelo != null && padre.significado == null && padre.cantHijos == 1) {
+                fusionar(abuelo, padre);
+            }
+        } else if (n.cantHijos == 1) {
+            fusionar(padre, n);
+        }
+    }
+
+    /**
+     * Reemplaza a n, que no tiene significado y tiene un solo hijo, por ese
+     * hijo con las dos etiquetas concatenadas. El hijo conserva su cota: su
+     * subárbol es el mismo que el de n.
+     */
+    private void fusionar(Nodo padre, Nodo n) {
+        Nodo unico = n.hijos[0];
+        unico.etiqueta = concatenar(n.etiqueta, unico.etiqueta);
+        padre.reemplazarHijo(unico);
+    }
+
+    /**
+     * @Complejidad: O(1).
+     *
+     * @see Diccionario#size
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Cuenta los nodos, incluida la raíz.
+     *
+     * @Complejidad: O(cantidad de nodos), que es O(size).
+     *
+     * @see DiccionarioString#nodos
+     */
+    @Override
+    public int nodos() {
+        int res = 0;
+        ArrayList<Nodo> pendientes = new ArrayList<>();
+        pendientes.add(raiz);
+        while (!pendientes.isEmpty()) {
+            Nodo n = pendientes.remove(pendientes.size() - 1);
+            res++;
+            for (int i = 0; i < n.cantHijos; i++) {
+                pendientes.add(n.hijos[i]);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @Complejidad: O(|k|) + O(f).
+     *
+     * @see DiccionarioString#modificar
+     */
+    @Override
+    public void modificar(String k, Function<V, V> f) {
+        Nodo n = bajar(k, false, 0);
+        n.significado = f.apply(n.significado);
+    }
+
+    /**
+     * Devuelve un cursor sobre las definiciones, en orden lexicográfico.
+     *
+     * @Complejidad: O(1). Recorrer todo con el cursor es O(Σ|k|) en bytes
+     * copiados, pero visita un nodo por arista y no por caracter.
+     *
+     * @see DiccionarioString#cursor
+     */
+    @Override
+    public CursorDiccionario<V> cursor() {
+        return new CursorComprimido(raiz, SIN_BYTES);
+    }
+
+    /**
+     * Devuelve un cursor sobre las definiciones con el prefijo dado,
+     * recorriendo sólo el subárbol del nodo en el que termina el prefijo.
+     *
+     * @Complejidad: O(|prefijo|). Recorrer el resultado es O(Σ|k|) sobre las
+     * claves con el prefijo.
+     *
+     * @see DiccionarioString#cursorConPrefijo
+     */
+    @Override
+    public CursorDiccionario<V> cursorConPrefijo(String prefijo) {
+        byte[] camino = completar(Trie.codificar(prefijo));
+        if (camino == null) {
+            return new CursorComprimido(null, SIN_BYTES);
+        }
+        return new CursorComprimido(nodo(camino), camino);
+    }
+
+    /**
+     * Recorrido en preorden con una pila explícita. Para cada nodo del camino
+     * se guarda la próxima posición de hijo a visitar (o POR_VISITAR si
+     * todavía no se consideró el propio nodo) y el largo de su camino: la
+     * clave del nodo en el tope es la decodificación de
+     * buffer[0..largos[tope-1]).
+     */
+    private class CursorComprimido implements CursorDiccionario<V> {
+
+        private static final int POR_VISITAR = -1;
+
+        private Nodo[] nodos = nuevosNodos(16);
+        private int[] proximas = new int[16];
+        private int[] largos = new int[16];
+        private byte[] buffer;
+        private int tope = 0;
+        private Nodo actual = null;
+        private String clave = null;
+
+        CursorComprimido(Nodo inicio, byte[] camino) {
+            buffer = Arrays.copyOf(camino, camino.length + 32);
+            if (inicio != null) {
+                nodos[0] = inicio;
+                proximas[0] = POR_VISITAR;
+                largos[0] = camino.length;
+                tope = 1;
+            }
+        }
+
+        @Override
+        public boolean avanzar() {
+            clave = null;
+            while (tope > 0) {
+                int t = tope - 1;
+                Nodo n = nodos[t];
+                if (proximas[t] == POR_VISITAR) {
+                    proximas[t] = 0;
+                    if (n.significado != null) {
+                        actual = n;
+                        return true;
+                    }
+                }
+                int p = proximas[t];
+                if (p >= n.cantHijos) {
+                    tope--;
+                    continue;
+                }
+                proximas[t] = p + 1;
+                Nodo h = n.hijos[p];
+                if (tope == nodos.length) {
+                    nodos = Arrays.copyOf(nodos, tope * 2);
+                    proximas = Arrays.copyOf(proximas, tope * 2);
+                    largos = Arrays.copyOf(largos, tope * 2);
+                }
+                int largo = largos[t] + h.etiqueta.length;
+                if (largo > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, Math.max(largo, buffer.length * 2));
+                }
+                System.arraycopy(h.etiqueta, 0, buffer, largos[t], h.etiqueta.length);
+                nodos[tope] = h;
+                proximas[tope] = POR_VISITAR;
+                largos[tope] = largo;
+                tope++;
+            }
+            actual = null;
+            return false;
+        }
+
+        @Override
+        public String clave() {
+            if (clave == null) {
+                clave = Trie.decodificar(buffer, largos[tope - 1]);
+            }
+            return clave;
+        }
+
+        @Override
+        public V valor() {
+            return actual.significado;
+        }
+    }
+
+    /**
+     * Eleva a cota la cota de cada nodo del camino de k, incluida la raíz y
+     * el nodo de la arista en la que termina k.
+     *
+     * @Complejidad: O(|k|). No reserva memoria.
+     *
+     * @see DiccionarioString#elevarCota
+     */
+    @Override
+    public void elevarCota(String k, int cota) {
+        bajar(k, true, cota);
+    }
+
+    private void elevarCota(Nodo n, int cota) {
+        // las cotas nunca son negativas: con cota <= 0 no hay nada que elevar
+        int v;
+        while (cota > 0 && (v = n.cota) < cota && !COTA.compareAndSet(n, v, cota)) {
+        }
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see DiccionarioString#cota
+     */
+    @Override
+    public int cota(String k) {
+        Nodo n = bajar(k, true, 0);
+        return n == null ? 0 : n.cota;
+    }
+
+    /**
+     * Búsqueda primero-el-mejor sobre las cotas de los nodos, igual que
+     * `Trie.mejores`, pero cada paso baja una arista entera.
+     *
+     * @Complejidad: O(|prefijo| + e log e), con e la cantidad de entradas
+     * encoladas.
+     *
+     * @see DiccionarioString#mejores
+     */
+    @Override
+    public String[] mejores(String prefijo, int k, ToIntFunction<V> puntaje) {
+        byte[] camino = completar(Trie.codificar(prefijo));
+        if (camino == null || k <= 0) {
+            return new String[0];
+        }
+        Nodo inicio = nodo(camino);
+        ArrayList<String> res = new ArrayList<>(k);
+        PriorityQueue<Candidato> cola = new PriorityQueue<>();
+        cola.add(new Candidato(inicio, camino, inicio.cota));
+        while (!cola.isEmpty() && res.size() < k) {
+            Candidato c = cola.poll();
+            Nodo n = c.nodo;
+            if (n == null) {
+                res.add(Trie.decodificar(c.clave, c.clave.length));
+                continue;
+            }
+            if (n.significado != null) {
+                cola.add(new Candidato(null, c.clave, puntaje.applyAsInt(n.significado)));
+            }
+            for (int p = 0; p < n.cantHijos; p++) {
+                Nodo h = n.hijos[p];
+                cola.add(new Candidato(h, concatenar(c.clave, h.etiqueta), h.cota));
+            }
+        }
+        return res.toArray(new String[0]);
+    }
+
+    /**
+     * Entrada de la cola de `mejores`, con el mismo orden que
+     * `Trie.Candidato`.
+     */
+    private class Candidato implements Comparable<Candidato> {
+        final Nodo nodo;
+        final byte[] clave;
+        final int valor;
+
+        Candidato(Nodo nodo, byte[] clave, int valor) {
+            this.nodo = nodo;
+            this.clave = clave;
+            this.valor = valor;
+        }
+
+        @Override
+        public int compareTo(Candidato o) {
+            if (valor != o.valor) {
+                return Integer.compare(o.valor, valor);
+            }
+            int cmp = Arrays.compareUnsigned(clave, o.clave);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Boolean.compare(nodo != null, o.nodo != null);
+        }
+    }
+
+    /**
+     * Retorna las claves ordenadas lexicográficamente.
+     *
+     * @Complejidad: O(Σ|k|).
+     *
+     * @see #cursor
+     */
+    @Override
+    public String[] keys() {
+        String[] keys = new String[size];
+        CursorDiccionario<V> c = cursor();
+        for (int i = 0; c.avanzar(); i++) {
+            keys[i] = c.clave();
+        }
+        return keys;
+    }
+
+    /**
+     * Retorna los significados, en el orden de `keys`.
+     *
+     * @Complejidad: O(Σ|k|).
+     */
+    @Override
+    public ArrayList<V> values() {
+        ArrayList<V> values = new ArrayList<>(size);
+        CursorDiccionario<V> c = cursor();
+        while (c.avanzar()) {
+            values.add(c.valor());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,635 @@
+package aed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Versión inmutable de un Trie, representada como un double-array trie: el
+ * hijo con etiqueta c del estado s es el estado t = base[s] + c + 1, y existe
+ * sólo si check[t] = s. Como en Trie, las etiquetas son los bytes de la
+ * codificación UTF-8 de las claves. Así cada paso de una búsqueda es una suma y una
+ * comparación sobre arreglos de enteros, sin nodos ni punteros.
+ *
+ * La estructura (el conjunto de estados) queda fija al construirse. Borrar una
+ * clave deja una lápida: su significado pasa a null y el estado sigue
+ * existiendo, por lo que se puede volver a definir una clave borrada pero no
+ * agregar claves que no estaban al congelar.
+ *
+ * pred hijo(t: TrieCongelado, s: int, c: int, u: int) { u = t.base[s] + c + 1 ^
+ * 0 <= u < |t.check| ^ t.check[u] = s }
+ *
+ * @InvRep(TrieCongelado t) = {
+ *                          |t.base| = |t.check| = |t.valores| ^
+ *                          t.check[RAIZ] = OCUPADO ^
+ *                          (∀ u ≠ RAIZ. t.check[u] = LIBRE v (0 <= t.check[u] < |t.check| ^
+ *                              t.check[t.check[u]] != LIBRE ^ hijo(t, t.check[u], u - t.base[t.check[u]] - 1, u))) ^
+ *                          (∀ u. t.check[u] = LIBRE => t.valores[u] = null) ^
+ *                          t.size = |{u : t.valores[u] != null}| ^
+ *                          |t.cotas| = |t.check| ^ (∀ u, v. v en el subárbol de u ^
+ *                              t.valores[v] != null => puntaje(t.valores[v]) <= t.cotas[u])
+ *                          }
+ */
+public class TrieCongelado<V> implements DiccionarioString<V> {
+
+    private static final int RAIZ = 0;
+    private static final int LIBRE = -1;
+    private static final int OCUPADO = -2;
+    // base de los estados sin hijos: ninguna posición los tiene como check
+    private static final int SIN_HIJOS = -1;
+    private static final int ALFABETO = 256;
+
+    private int[] base;
+    private int[] check;
+    private Object[] valores;
+    // cota del puntaje de las definiciones del subárbol de cada estado (ver
+    // elevarCota); empiezan en 0 al congelar
+    private AtomicIntegerArray cotas;
+    private int size = 0;
+    private int largoMaximo = 0;
+    private int primeroLibre = 1;
+
+    /**
+     * Congela el diccionario d, con sus cotas.
+     *
+     * @Complejidad: O(Σ|k| * (Σ|k| + 256)) en el peor caso. Para cada estado
+     * se busca, probando una por una desde la primera posición libre, la
+     * primera base que aloje a todos sus hijos; cada prueba cuesta a lo sumo
+     * la cantidad de hijos y puede haber tantas como posiciones tienen los
+     * arreglos (O(Σ|k| + 256)). En la práctica casi siempre alcanzan unas
+     * pocas pruebas y la construcción es cercana a O(Σ|k|).
+     */
+    public TrieCongelado(DiccionarioString<V> d) {
+        this(d.keys(), d.values());
+        CursorDiccionario<V> c = cursor();
+        while (c.avanzar()) {
+            elevarCota(c.clave(), d.cota(c.clave()));
+        }
+    }
+
+    /**
+     * Congela las claves con sus significados. `claves` debe estar ordenado
+     * como lo devuelve el cursor de un Trie (por sus bytes UTF-8), sin
+     * repetidos, y valores.get(i) es el significado de claves[i].
+     *
+     * @Complejidad: O(Σ|k| * (Σ|k| + 256)) en el peor caso (ver el
+     * constructor anterior).
+     */
+    public TrieCongelado(String[] claves, ArrayList<V> valores) {
+        this(codificar(claves), valores);
+    }
+
+    private TrieCongelado(byte[][] claves, ArrayList<V> valores) {
+        int capacidad = 2;
+        for (byte[] k : claves) {
+            capacidad += k.length;
+            largoMaximo = Math.max(largoMaximo, k.length);
+        }
+        base = new int[capacidad];
+        check = new int[capacidad];
+        this.valores = new Object[capacidad];
+        Arrays.fill(check, LIBRE);
+        check[RAIZ] = OCUPADO;
+        construir(claves, valores);
+        recortar();
+        cotas = new AtomicIntegerArray(check.length);
+    }
+
+    private static byte[][] codificar(String[] claves) {
+        byte[][] res = new byte[claves.length][];
+        for (int i = 0; i < claves.length; i++) {
+            res[i] = Trie.codificar(claves[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Ubica los estados de todas las claves. Es un recorrido en preorden con
+     * una pila explícita, así que no hay recursión aunque una clave sea muy
+     * larga: cada entrada de la pila es un estado pendiente, con el rango
+     * claves[desde..hasta) de las claves que empiezan con su prefijo y el
+     * largo de ese prefijo.
+     */
+    private void construir(byte[][] claves, ArrayList<V> valores) {
+        // de a cuatro: estado, desde, hasta, profundidad
+        int[] pila = new int[4 * 16];
+        int tope = 0;
+        pila[tope++] = RAIZ;
+        pila[tope++] = 0;
+        pila[tope++] = claves.length;
+        pila[tope++] = 0;
+        int[] etiquetas = new int[ALFABETO];
+        int[] inicios = new int[ALFABETO + 1];
+        while (tope > 0) {
+            int profundidad = pila[--tope];
+            int hasta = pila[--tope];
+            int i = pila[--tope];
+            int s = pila[--tope];
+            if (i < hasta && claves[i].length == profundidad) {
+                // por el orden, la clave igual al prefijo es la primera del rango
+                this.valores[s] = valores.get(i);
+                size++;
+                i++;
+            }
+            if (i == hasta) {
+                base[s] = SIN_HIJOS;
+                continue;
+            }
+            int cant = 0;
+            for (int j = i; j < hasta; j++) {
+                int c = claves[j][profundidad] & 0xFF;
+                if (cant == 0 || etiquetas[cant - 1] != c) {
+                    inicios[cant] = j;
+                    etiquetas[cant++] = c;
+                }
+            }
+            inicios[cant] = hasta;
+            int b = buscarBase(etiquetas, cant);
+            base[s] = b;
+            for (int j = 0; j < cant; j++) {
+                check[b + etiquetas[j] + 1] = s;
+            }
+            if (pila.length < tope + 4 * cant) {
+                pila = Arrays.copyOf(pila, Math.max(pila.length * 2, tope + 4 * cant));
+            }
+            // al revés, para que el primer hijo sea el primero en salir
+            for (int j = cant - 1; j >= 0; j--) {
+                pila[tope++] = b + etiquetas[j] + 1;
+                pila[tope++] = inicios[j];
+                pila[tope++] = inicios[j + 1];
+                pila[tope++] = profundidad + 1;
+            }
+        }
+    }
+
+    /**
+     * Devuelve la menor base b tal que todas las posiciones b + c + 1 de las
+     * etiquetas c están libres, agrandando los arreglos si hace falta.
+     */
+    private int buscarBase(int[] etiquetas, int cant) {
+        while (primeroLibre < check.length && check[primeroLibre] != LIBRE) {
+            primeroLibre++;
+        }
+        int b = Math.max(0, primeroLibre - etiquetas[0] - 1);
+        while (true) {
+            asegurarCapacidad(b + etiquetas[cant - 1] + 2);
+            boolean libre = true;
+            for (int j = 0; j < cant && libre; j++) {
+                libre = check[b + etiquetas[j] + 1] == LIBRE;
+            }
+            if (libre) {
+                return b;
+            }
+            b++;
+        }
+    }
+
+    private void asegurarCapacidad(int n) {
+        if (n <= check.length) {
+            return;
+        }
+        int capacidad = Math.max(n, check.length * 2);
+        int anterior = check.length;
+        base = Arrays.copyOf(base, capacidad);
+        check = Arrays.copyOf(check, capacidad);
+        valores = Arrays.copyOf(valores, capacidad);
+        Arrays.fill(check, anterior, capacidad, LIBRE);
+    }
+
+    /**
+     * Descarta las posiciones libres del final de los arreglos.
+     */
+    private void recortar() {
+        int n = check.length;
+        while (n > 1 && check[n - 1] == LIBRE) {
+            n--;
+        }
+        base = Arrays.copyOf(base, n);
+        check = Arrays.copyOf(check, n);
+        valores = Arrays.copyOf(valores, n);
+    }
+
+    /**
+     * Devuelve el estado al que se llega leyendo la clave k desde la raíz, o -1
+     * si no existe. Recorre los bytes UTF-8 de k a medida que los calcula, sin
+     * codificarla.
+     *
+     * @Complejidad: O(|k|). No reserva memoria.
+     */
+    private int estado(String k) {
+        int s = RAIZ;
+        int cp;
+        for (int i = 0; i < k.length() && s >= 0; i += Character.charCount(cp)) {
+            cp = Trie.puntoDeCodigo(k, i);
+            int largo = Trie.largoUtf8(cp);
+            for (int j = 0; j < largo && s >= 0; j++) {
+                s = hijo(s, Trie.byteUtf8(cp, largo, j));
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Devuelve el estado hijo de s con etiqueta c (entre 0 y 255), o -1 si no
+     * existe.
+     *
+     * @Complejidad: O(1).
+     */
+    private int hijo(int s, int c) {
+        int t = base[s] + c + 1;
+        return t < check.length && check[t] == s ? t : -1;
+    }
+
+    /**
+     * Devuelve el estado al que se llega leyendo los bytes k desde la raíz, o
+     * -1 si no existe.
+     *
+     * @Complejidad: O(|k|). No reserva memoria.
+     */
+    private int estado(byte[] k) {
+        int s = RAIZ;
+        for (int i = 0; i < k.length; i++) {
+            int t = base[s] + (k[i] & 0xFF) + 1;
+            if (t >= check.length || check[t] != s) {
+                return -1;
+            }
+            s = t;
+        }
+        return s;
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see Diccionario#esta
+     */
+    @Override
+    public boolean esta(String k) {
+        if (k.equals("")) {
+            return false;
+        }
+        int s = estado(k);
+        return s >= 0 && valores[s] != null;
+    }
+
+    /**
+     * Sólo puede definir claves que estaban al congelar (aunque se hayan
+     * borrado después). Para cualquier otra lanza UnsupportedOperationException.
+     *
+     * @Complejidad: O(|k|).
+     *
+     * @see Diccionario#definir
+     */
+    @Override
+    public void definir(String k, V value) {
+        if (k.equals("")) {
+            return;
+        }
+        int s = estado(k);
+        if (s < 0) {
+            throw new UnsupportedOperationException("TrieCongelado no admite claves nuevas: " + k);
+        }
+        if (valores[s] == null) {
+            size++;
+        }
+        valores[s] = value;
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see Diccionario#obtener
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V obtener(String k) {
+        return (V) valores[estado(k)];
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see DiccionarioString#buscar
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V buscar(String k) {
+        int s = estado(k);
+        return s < 0 ? null : (V) valores[s];
+    }
+
+    /**
+     * Deja una lápida en el estado de k: la estructura no cambia.
+     *
+     * @Complejidad: O(|k|).
+     *
+     * @see Diccionario#borrar
+     */
+    @Override
+    public void borrar(String k) {
+        valores[estado(k)] = null;
+        size--;
+    }
+
+    /**
+     * @Complejidad: O(1).
+     *
+     * @see Diccionario#size
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Cuenta los estados ocupados, incluida la raíz.
+     *
+     * @Complejidad: O(|check|).
+     *
+     * @see DiccionarioString#nodos
+     */
+    @Override
+    public int nodos() {
+        int res = 0;
+        for (int c : check) {
+            if (c != LIBRE) {
+                res++;
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @Complejidad: O(|k|) + O(f).
+     *
+     * @see DiccionarioString#modificar
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void modificar(String k, Function<V, V> f) {
+        int s = estado(k);
+        valores[s] = f.apply((V) valores[s]);
+    }
+
+    /**
+     * Devuelve un cursor sobre las definiciones (sin lápidas), en orden
+     * lexicográfico.
+     *
+     * @Complejidad: O(1). Recorrer todo con el cursor es O(256 * cantidad de
+     * estados) = O(Σ|k|).
+     *
+     * @see DiccionarioString#cursor
+     */
+    @Override
+    public CursorDiccionario<V> cursor() {
+        return new CursorCongelado(RAIZ, new byte[0]);
+    }
+
+    /**
+     * Devuelve un cursor sobre las definiciones con el prefijo dado, en orden
+     * lexicográfico, recorriendo sólo el subárbol del estado del prefijo.
+     *
+     * @Complejidad: O(|prefijo|). Recorrer el resultado es O(256 * estados del
+     * subárbol).
+     *
+     * @see DiccionarioString#cursorConPrefijo
+     */
+    @Override
+    public CursorDiccionario<V> cursorConPrefijo(String prefijo) {
+        byte[] bytes = Trie.codificar(prefijo);
+        return new CursorCongelado(estado(bytes), bytes);
+    }
+
+    /**
+     * Recorrido en preorden con una pila de (estado, próxima etiqueta a
+     * probar). La etiqueta elegida en el nivel i queda en
+     * buffer[largoPrefijo + i], detrás de los bytes del prefijo del estado
+     * inicial.
+     */
+    private class CursorCongelado implements CursorDiccionario<V> {
+
+        private static final int POR_VISITAR = -1;
+
+        private final int largoPrefijo;
+        private final int[] estados = new int[largoMaximo + 1];
+        private final int[] proximas = new int[largoMaximo + 1];
+        private final byte[] buffer = new byte[largoMaximo];
+        private int tope = 0;
+        private int actual = -1;
+        private String clave = null;
+
+        CursorCongelado(int inicio, byte[] prefijo) {
+            largoPrefijo = prefijo.length;
+            if (inicio >= 0) {
+                // si el estado existe, el prefijo no es más largo que largoMaximo
+                System.arraycopy(prefijo, 0, buffer, 0, largoPrefijo);
+                estados[0] = inicio;
+                proximas[0] = POR_VISITAR; // el nodo del prefijo puede ser una clave
+                tope = 1;
+            }
+        }
+
+        @Override
+        public boolean avanzar() {
+            clave = null;
+            while (tope > 0) {
+                int t = tope - 1;
+                int s = estados[t];
+                if (proximas[t] == POR_VISITAR) {
+                    proximas[t] = 0;
+                    if (valores[s] != null) {
+                        actual = s;
+                        return true;
+                    }
+                }
+                int c = proximas[t];
+                int hijo = siguienteHijo(s, c);
+                if (hijo < 0) {
+                    tope--;
+                    continue;
+                }
+                c = hijo - base[s] - 1;
+                proximas[t] = c + 1;
+                buffer[largoPrefijo + t] = (byte) c;
+                estados[tope] = hijo;
+                proximas[tope] = POR_VISITAR;
+                tope++;
+            }
+            actual = -1;
+            return false;
+        }
+
+        @Override
+        public String clave() {
+            if (clave == null) {
+                clave = Trie.decodificar(buffer, largoPrefijo + tope - 1);
+            }
+            return clave;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V valor() {
+            return (V) valores[actual];
+        }
+    }
+
+    /**
+     * Devuelve el primer hijo del estado s con etiqueta >= desde, o -1 si no
+     * hay.
+     *
+     * @Complejidad: O(256).
+     */
+    private int siguienteHijo(int s, int desde) {
+        int b = base[s];
+        for (int c = desde; b != SIN_HIJOS && c < ALFABETO && b + c + 1 < check.length; c++) {
+            if (check[b + c + 1] == s) {
+                return b + c + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Eleva a cota la cota de cada estado del camino de k, incluida la raíz.
+     *
+     * @Complejidad: O(|k|).
+     *
+     * @see DiccionarioString#elevarCota
+     */
+    @Override
+    public void elevarCota(String k, int cota) {
+        int s = RAIZ;
+        elevarCota(s, cota);
+        int cp;
+        for (int i = 0; i < k.length() && s >= 0; i += Character.charCount(cp)) {
+            cp = Trie.puntoDeCodigo(k, i);
+            int largo = Trie.largoUtf8(cp);
+            for (int j = 0; j < largo && s >= 0; j++) {
+                s = hijo(s, Trie.byteUtf8(cp, largo, j));
+                if (s >= 0) {
+                    elevarCota(s, cota);
+                }
+            }
+        }
+    }
+
+    private void elevarCota(int s, int cota) {
+        int v;
+        while ((v = cotas.get(s)) < cota && !cotas.compareAndSet(s, v, cota)) {
+        }
+    }
+
+    /**
+     * @Complejidad: O(|k|).
+     *
+     * @see DiccionarioString#cota
+     */
+    @Override
+    public int cota(String k) {
+        int s = estado(k);
+        return s < 0 ? 0 : cotas.get(s);
+    }
+
+    /**
+     * Búsqueda primero-el-mejor sobre las cotas de los estados, igual que
+     * `Trie.mejores`.
+     *
+     * @Complejidad: O(|prefijo| + e * (256 + log e)), con e la cantidad de
+     * entradas encoladas.
+     *
+     * @see DiccionarioString#mejores
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public String[] mejores(String prefijo, int k, ToIntFunction<V> puntaje) {
+        byte[] bytes = Trie.codificar(prefijo);
+        int inicio = estado(bytes);
+        if (inicio < 0 || k <= 0) {
+            return new String[0];
+        }
+        ArrayList<String> res = new ArrayList<>(k);
+        PriorityQueue<Candidato> cola = new PriorityQueue<>();
+        cola.add(new Candidato(inicio, bytes, cotas.get(inicio)));
+        while (!cola.isEmpty() && res.size() < k) {
+            Candidato c = cola.poll();
+            int s = c.estado;
+            if (s < 0) {
+                res.add(Trie.decodificar(c.clave, c.clave.length));
+                continue;
+            }
+            if (valores[s] != null) {
+                cola.add(new Candidato(-1, c.clave, puntaje.applyAsInt((V) valores[s])));
+            }
+            for (int h = siguienteHijo(s, 0); h >= 0; h = siguienteHijo(s, h - base[s])) {
+                cola.add(new Candidato(h, Trie.extender(c.clave, h - base[s] - 1), cotas.get(h)));
+            }
+        }
+        return res.toArray(new String[0]);
+    }
+
+    /**
+     * Entrada de la cola de `mejores`: un subárbol (estado >= 0) con su cota o
+     * una definición (estado = -1) con su puntaje, en el mismo orden que
+     * `Trie.Candidato`.
+     */
+    private static class Candidato implements Comparable<Candidato> {
+        final int estado;
+        final byte[] clave;
+        final int valor;
+
+        Candidato(int estado, byte[] clave, int valor) {
+            this.estado = estado;
+            this.clave = clave;
+            this.valor = valor;
+        }
+
+        @Override
+        public int compareTo(Candidato o) {
+            if (valor != o.valor) {
+                return Integer.compare(o.valor, valor);
+            }
+            int cmp = Arrays.compareUnsigned(clave, o.clave);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Boolean.compare(estado >= 0, o.estado >= 0);
+        }
+    }
+
+    /**
+     * Retorna las claves definidas (sin lápidas), ordenadas
+     * lexicográficamente.
+     *
+     * @Complejidad: O(256 * cantidad de estados) = O(Σ|k|).
+     *
+     * @see #cursor
+     */
+    @Override
+    public String[] keys() {
+        String[] keys = new String[size];
+        CursorDiccionario<V> c = cursor();
+        for (int i = 0; c.avanzar(); i++) {
+            keys[i] = c.clave();
+        }
+        return keys;
+    }
+
+    /**
+     * Retorna los significados definidos, en el orden de `keys`.
+     *
+     * @Complejidad: O(Σ|k|). Mismo razonamiento que `keys`.
+     */
+    @Override
+    public ArrayList<V> values() {
+        ArrayList<V> values = new ArrayList<>(size);
+        CursorDiccionario<V> c = cursor();
+        while (c.avanzar()) {
+            values.add(c.valor());
+        }
+        return values;
+    }
+}